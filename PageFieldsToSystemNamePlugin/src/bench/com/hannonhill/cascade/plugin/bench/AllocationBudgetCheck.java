@@ -0,0 +1,113 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import com.cms.assetfactory.PluginException;
+
+/**
+ * Checks the bytes allocated per <code>doPluginActionPost</code> for each {@link Scenario} against the budgets in
+ * <code>allocation-budgets.properties</code>, and exits with status 1 if any scenario exceeds its budget or has none.
+ * Allocation is counted with the per-thread allocation counters of ThreadMXBean, after a warm-up which lets the
+ * plug-in compile & cache its naming plan.<br/><br/>
+ *
+ * Usage:  <code>AllocationBudgetCheck [-warmup &lt;ops&gt;] [-ops &lt;ops&gt;]</code>
+ */
+public final class AllocationBudgetCheck
+{
+	private static final String BUDGETS_RESOURCE = "allocation-budgets.properties";
+
+	private AllocationBudgetCheck()
+	{
+	}
+
+	/**
+	 * @param args String[] command-line arguments; see the class description
+	 * @throws IOException if the budgets cannot be read
+	 * @throws PluginException if a scenario's page cannot be named
+	 */
+	public static void main(String[] args) throws IOException, PluginException
+	{
+		int warmupOps = 20000;
+		int ops = 10000;
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			if (args[i].equals("-warmup"))
+			{
+				warmupOps = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("-ops"))
+			{
+				ops = Integer.parseInt(args[i + 1]);
+			}
+		}
+
+		if (!AllocationMeter.isSupported())
+		{
+			System.err.println("Per-thread allocation counting is not supported by this JVM; allocation budgets cannot be checked.");
+			System.exit(1);
+		}
+
+		Properties budgets = new Properties();
+		InputStream in = AllocationBudgetCheck.class.getResourceAsStream(BUDGETS_RESOURCE);
+		if (in == null)
+		{
+			System.err.println("Missing " + BUDGETS_RESOURCE);
+			System.exit(1);
+		}
+		try
+		{
+			budgets.load(in);
+		}
+		finally
+		{
+			in.close();
+		}
+
+		boolean failed = false;
+		System.out.println(String.format("%-24s %12s %12s", "scenario", "bytes/op", "budget"));
+		for (Scenario scenario : Scenario.all())
+		{
+			long bytesPerOp = measure(scenario, warmupOps, ops);
+			String stBudget = budgets.getProperty(scenario.getName());
+			String verdict;
+			if (stBudget == null)
+			{
+				verdict = "NO BUDGET";
+				failed = true;
+			}
+			else if (bytesPerOp > Long.parseLong(stBudget.trim()))
+			{
+				verdict = "OVER BUDGET";
+				failed = true;
+			}
+			else
+			{
+				verdict = "ok";
+			}
+			System.out.println(String.format("%-24s %12d %12s  %s", scenario.getName(), bytesPerOp, stBudget == null ? "-" : stBudget.trim(), verdict));
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	/**
+	 * @return the mean number of bytes allocated per operation, rounded up
+	 */
+	private static long measure(Scenario scenario, int warmupOps, int ops) throws PluginException
+	{
+		int hash = 0;
+		for (int i = 0; i < warmupOps; i++)
+		{
+			hash += scenario.run().length();
+		}
+		long bytes = AllocationMeter.allocatedBytes();
+		for (int i = 0; i < ops; i++)
+		{
+			hash += scenario.run().length();
+		}
+		bytes = AllocationMeter.allocatedBytes() - bytes;
+		NamingBenchmark.sink = hash;
+		return (bytes + ops - 1) / ops;
+	}
+}
@@ -0,0 +1,51 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the number of bytes allocated by the current thread, using the HotSpot extension of ThreadMXBean.
+ */
+public final class AllocationMeter
+{
+	private static final com.sun.management.ThreadMXBean THREADS;
+
+	static
+	{
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean hotspot = null;
+		if (threads instanceof com.sun.management.ThreadMXBean)
+		{
+			hotspot = (com.sun.management.ThreadMXBean)threads;
+			if (hotspot.isThreadAllocatedMemorySupported())
+			{
+				hotspot.setThreadAllocatedMemoryEnabled(true);
+			}
+			else
+			{
+				hotspot = null;
+			}
+		}
+		THREADS = hotspot;
+	}
+
+	private AllocationMeter()
+	{
+	}
+
+	/**
+	 * @return true if the JVM can count the bytes allocated per thread
+	 */
+	public static boolean isSupported()
+	{
+		return THREADS != null;
+	}
+
+	/**
+	 * @return the number of bytes allocated by the current thread so far, or -1 if this is not supported
+	 */
+	public static long allocatedBytes()
+	{
+		return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,226 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.plugin.OfflineFilenameNormalizer;
+import com.hannonhill.cascade.plugin.SystemNameGenerator;
+import com.hannonhill.cascade.plugin.SystemNameResult;
+
+/**
+ * Checks that a {@link SystemNameGenerator} shared by many threads generates exactly the names it generates on a single
+ * thread.  One generator per configuration of Field IDs, covering every kind of field, names a {@link Corpus} of pages
+ * on one thread; then all threads start at once and each names every page with every shared generator, in an order
+ * of its own, comparing each result with the single-threaded one.  This is done with platform threads, and again with
+ * virtual threads when the JVM has them (Java 21 and later).  Exits with status 1 on any difference or exception.<br/><br/>
+ *
+ * Usage:  <code>ConcurrentNamingCheck [-threads &lt;n&gt;] [-pages &lt;n&gt;] [-rounds &lt;n&gt;]</code>
+ */
+public final class ConcurrentNamingCheck
+{
+	private static final long SEED = 20240601L;
+	/** The Field IDs of each shared generator */
+	private static final String[] FIELD_IDS = { "title", "title,author,start-date", "description",
+		"dynamic-metadata/category,dynamic-metadata/tags", "system-data-structure/group/headline,system-data-structure/options",
+		"system-data-structure/published,system-data-structure/event,title",
+		"start-date,dynamic-metadata/tags,system-data-structure/options,author,system-data-structure/event" };
+	/** The most differences reported */
+	private static final int MAX_REPORTED = 10;
+
+	private ConcurrentNamingCheck()
+	{
+	}
+
+	/**
+	 * @param args String[] command-line arguments; see the class description
+	 * @throws Exception if the threads cannot be run
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int threads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+		int pageCount = 2000;
+		int rounds = 3;
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			if (args[i].equals("-threads"))
+			{
+				threads = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("-pages"))
+			{
+				pageCount = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("-rounds"))
+			{
+				rounds = Integer.parseInt(args[i + 1]);
+			}
+		}
+
+		List<StubPage> pages = Corpus.pages(pageCount, SEED);
+		SystemNameGenerator[] generators = new SystemNameGenerator[FIELD_IDS.length];
+		String[][] expected = new String[FIELD_IDS.length][pages.size()];
+		for (int g = 0; g < generators.length; g++)
+		{
+			generators[g] = new SystemNameGenerator(FIELD_IDS[g], null, null, new OfflineFilenameNormalizer());
+			for (int p = 0; p < pages.size(); p++)
+			{
+				expected[g][p] = name(generators[g], pages.get(p));
+			}
+		}
+
+		Run run = new Run(generators, pages, expected);
+		boolean failed = false;
+		for (int round = 0; round < rounds; round++)
+		{
+			ExecutorService platform = Executors.newFixedThreadPool(threads);
+			failed |= !run.check("platform threads, round " + (round + 1), platform, threads);
+		}
+
+		ExecutorService virtual = newVirtualThreadExecutor();
+		if (virtual == null)
+		{
+			System.out.println("virtual threads: not available on this JVM (Java 21 or later); skipped");
+		}
+		else
+		{
+			for (int round = 0; round < rounds; round++)
+			{
+				failed |= !run.check("virtual threads, round " + (round + 1), round == 0 ? virtual : newVirtualThreadExecutor(), threads * 16);
+			}
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	/**
+	 * @return the generated name, or the problems which prevented one, as a String
+	 */
+	static String name(SystemNameGenerator generator, StubPage page)
+	{
+		DynamicMetadataField[] dynamicMetadata = generator.usesDynamicMetadata() ? page.getMetadata().getDynamicFields() : null;
+		StructuredDataNode[] structuredData = generator.usesStructuredData() ? page.getStructuredData() : null;
+		SystemNameResult result = generator.generate(page.getMetadata(), dynamicMetadata, structuredData);
+		return result.isSuccess() ? result.getName() : result.getProblems().toString();
+	}
+
+	/**
+	 * @return an executor starting a virtual thread per task, or null if the JVM has no virtual threads
+	 */
+	private static ExecutorService newVirtualThreadExecutor()
+	{
+		try
+		{
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new IllegalStateException("Virtual threads could not be started", e);
+		}
+	}
+
+	/**
+	 * The shared generators, the pages and the names generated for them on a single thread.
+	 */
+	private static final class Run
+	{
+		private final SystemNameGenerator[] generators;
+		private final List<StubPage> pages;
+		private final String[][] expected;
+
+		Run(SystemNameGenerator[] generators, List<StubPage> pages, String[][] expected)
+		{
+			this.generators = generators;
+			this.pages = pages;
+			this.expected = expected;
+		}
+
+		/**
+		 * Names every page with every generator on each of the given number of tasks at once, then shuts the executor
+		 * down.
+		 * @return true if every task generated the expected names
+		 */
+		boolean check(String stLabel, ExecutorService executor, int tasks) throws InterruptedException
+		{
+			final CountDownLatch start = new CountDownLatch(1);
+			final AtomicInteger names = new AtomicInteger();
+			final AtomicInteger differences = new AtomicInteger();
+			final List<String> reported = new ArrayList<String>();
+			final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+			long began = System.nanoTime();
+			for (int t = 0; t < tasks; t++)
+			{
+				final int task = t;
+				executor.execute(new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							start.await();
+							// each task walks the pages from its own offset, and in reverse every other task
+							int offset = (int)((long)task * pages.size() / tasks);
+							for (int i = 0; i < pages.size(); i++)
+							{
+								int p = (task % 2 == 0) ? (offset + i) % pages.size() : (offset + pages.size() - i) % pages.size();
+								for (int g = 0; g < generators.length; g++)
+								{
+									String stName = name(generators[(g + task) % generators.length], pages.get(p));
+									String stExpected = expected[(g + task) % generators.length][p];
+									names.incrementAndGet();
+									if (!stExpected.equals(stName))
+									{
+										differences.incrementAndGet();
+										synchronized (reported)
+										{
+											if (reported.size() < MAX_REPORTED)
+											{
+												reported.add("page " + p + ", Field IDs " + FIELD_IDS[(g + task) % generators.length] + ": expected '" + stExpected + "' but was '" + stName + "'");
+											}
+										}
+									}
+								}
+							}
+						}
+						catch (Throwable t)
+						{
+							error.compareAndSet(null, t);
+						}
+					}
+				});
+			}
+			start.countDown();
+			executor.shutdown();
+			if (!executor.awaitTermination(10, TimeUnit.MINUTES))
+			{
+				System.out.println(stLabel + ": did not finish within 10 minutes");
+				return false;
+			}
+
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+			boolean passed = differences.get() == 0 && error.get() == null;
+			System.out.println(String.format("%-30s %3d tasks %9d names %7d ms  %s", stLabel + ":", tasks, names.get(), millis,
+				passed ? "ok" : differences.get() + " DIFFERENT"));
+			for (String stDifference : reported)
+			{
+				System.out.println("  " + stDifference);
+			}
+			if (error.get() != null)
+			{
+				System.out.println("  FAILED WITH");
+				error.get().printStackTrace(System.out);
+			}
+			return passed;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.plugin.bench.StubStructuredDataNode.TextType;
+
+/**
+ * Deterministic, pseudo-random field values & pages for the correctness checks.  Titles are mostly ASCII & Latin-1
+ * words, as real titles are, mixed with the characters most likely to trip up normalization:  punctuation, runs of
+ * spaces & control characters, non-breaking & soft hyphens, characters just outside Latin-1, combining marks,
+ * surrogate pairs and text in other scripts.
+ */
+final class Corpus
+{
+	/** Field identifiers of every field the pages of {@link #pages} have */
+	static final String[] FIELD_IDS = { "title", "author", "description", "start-date", "dynamic-metadata/category",
+		"dynamic-metadata/tags", "system-data-structure/group/headline", "system-data-structure/options",
+		"system-data-structure/published", "system-data-structure/event" };
+
+	private static final String[] WORDS = { "The", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "News", "Events",
+		"2024", "Q3", "R&D", "caf\u00e9", "na\u00efve", "Cr\u00e8me", "br\u00fbl\u00e9e", "\u00c5ngstr\u00f6m", "Stra\u00dfe", "\u00c6sir",
+		"\u00d8resund", "se\u00f1or", "fa\u00e7ade", "\u00bfQu\u00e9?", "50%", "$100", "a/b", "x_y", "v1.2", "--", "\u00a9", "\u00bd" };
+
+	/** Characters outside of plain words, weighted towards the boundaries of a Latin-1 table */
+	private static final String[] ODDITIES = { " ", "  ", "\t", "\n", "\u00a0", "\u00ad", "\u007f", "\u0080", "\u009f", "\u00ff",
+		"\u0100", "\u0131", "\u0130", "\u017f", "\ufb01", "e\u0301", "A\u030a", "\u03a3\u03bf\u03c6\u03af\u03b1", "\u65e5\u672c\u8a9e",
+		"\u0645\u0631\u062d\u0628\u0627", "\ud83d\ude00", "\ud835\udc00", "\u2013", "\u2019", "\u201c", "\u20ac", "\u2122", "!", "?", "(", ")", "'", "\"",
+		",", ";", ":", "&", "#", "*", ".", "-", "_" };
+
+	private static final String[] CATEGORIES = { "News", "Events", "Caf\u00e9 Menu", "R&D", "\u00c9tudes" };
+
+	private Corpus()
+	{
+	}
+
+	/**
+	 * @param random Random source of the title
+	 * @return a title of one to twelve words & oddities, possibly padded with whitespace
+	 */
+	static String title(Random random)
+	{
+		StringBuilder title = new StringBuilder();
+		if (random.nextInt(8) == 0)
+		{
+			title.append(' ');
+		}
+		int parts = 1 + random.nextInt(12);
+		for (int i = 0; i < parts; i++)
+		{
+			if (i > 0 && random.nextInt(3) != 0)
+			{
+				title.append(' ');
+			}
+			title.append(random.nextInt(4) == 0 ? ODDITIES[random.nextInt(ODDITIES.length)] : WORDS[random.nextInt(WORDS.length)]);
+		}
+		if (random.nextInt(8) == 0)
+		{
+			title.append(random.nextBoolean() ? " " : "\t ");
+		}
+		return title.toString();
+	}
+
+	/**
+	 * @param count int number of titles
+	 * @param seed long seed of the titles
+	 * @return the titles, the same for the same seed
+	 */
+	static List<String> titles(int count, long seed)
+	{
+		Random random = new Random(seed);
+		List<String> titles = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++)
+		{
+			titles.add(title(random));
+		}
+		return titles;
+	}
+
+	/**
+	 * Builds pages with a value for each of {@link #FIELD_IDS}, though some values are blank or missing.
+	 * @param count int number of pages
+	 * @param seed long seed of the pages
+	 * @return the pages, the same for the same seed
+	 */
+	static List<StubPage> pages(int count, long seed)
+	{
+		Random random = new Random(seed);
+		List<StubPage> pages = new ArrayList<StubPage>(count);
+		for (int i = 0; i < count; i++)
+		{
+			StubMetadata metadata = new StubMetadata();
+			metadata.setTitle(title(random));
+			metadata.setAuthor(random.nextInt(10) == 0 ? " " : title(random));
+			metadata.setDescription(title(random) + " " + title(random) + " " + title(random));
+			metadata.setStartDate(random.nextInt(10) == 0 ? null : new Date(random.nextLong() % 4000000000000L));
+			String[] tags = new String[random.nextInt(5)];
+			for (int j = 0; j < tags.length; j++)
+			{
+				tags[j] = random.nextInt(6) == 0 ? "" : title(random);
+			}
+			metadata.setDynamicFields(new DynamicMetadataField[] {
+				new StubDynamicMetadataField("category", CATEGORIES[random.nextInt(CATEGORIES.length)]),
+				new StubDynamicMetadataField("tags", tags) });
+
+			String[] options = new String[1 + random.nextInt(6)];
+			for (int j = 0; j < options.length; j++)
+			{
+				options[j] = random.nextInt(5) == 0 ? null : title(random);
+			}
+			StructuredDataNode[] structuredData = {
+				StubStructuredDataNode.group("group", StubStructuredDataNode.text("headline", TextType.PLAIN_TEXT, title(random))),
+				StubStructuredDataNode.text("options", random.nextBoolean() ? TextType.MULTISELECT : TextType.CHECKBOX, options),
+				StubStructuredDataNode.text("published", TextType.DATETIME, String.valueOf(Math.abs(random.nextLong() % 4000000000000L))),
+				StubStructuredDataNode.text("event", TextType.CALENDAR, String.format("%02d-%02d-%04d", 1 + random.nextInt(12), 1 + random.nextInt(28), 1900 + random.nextInt(200))) };
+			pages.add(new StubPage(metadata, structuredData));
+		}
+		return pages;
+	}
+}
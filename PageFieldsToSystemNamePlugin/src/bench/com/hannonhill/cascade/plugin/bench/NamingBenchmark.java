@@ -0,0 +1,127 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.cms.assetfactory.PluginException;
+
+/**
+ * Measures the throughput & allocation rate of system naming for each {@link Scenario}.  Each scenario is warmed up,
+ * then measured over a number of fixed-length iterations, and reported as operations per second (mean &amp; range
+ * over the iterations) and bytes allocated per operation.<br/><br/>
+ *
+ * Usage:  <code>NamingBenchmark [-warmup &lt;ms&gt;] [-time &lt;ms&gt;] [-iterations &lt;n&gt;] [scenario-name...]</code>
+ */
+public final class NamingBenchmark
+{
+	/** Operations run between clock reads */
+	private static final int BATCH = 256;
+
+	/** Consumes results, so that the JIT cannot remove the work */
+	static volatile int sink;
+
+	private NamingBenchmark()
+	{
+	}
+
+	/**
+	 * @param args String[] command-line arguments; see the class description
+	 * @throws PluginException if a scenario's page cannot be named
+	 */
+	public static void main(String[] args) throws PluginException
+	{
+		long warmupMillis = 2000;
+		long timeMillis = 1000;
+		int iterations = 5;
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-warmup") && i + 1 < args.length)
+			{
+				warmupMillis = Long.parseLong(args[++i]);
+			}
+			else if (args[i].equals("-time") && i + 1 < args.length)
+			{
+				timeMillis = Long.parseLong(args[++i]);
+			}
+			else if (args[i].equals("-iterations") && i + 1 < args.length)
+			{
+				iterations = Integer.parseInt(args[++i]);
+			}
+			else
+			{
+				names.add(args[i]);
+			}
+		}
+
+		if (!AllocationMeter.isSupported())
+		{
+			System.err.println("Per-thread allocation counting is not supported by this JVM; bytes/op will not be reported.");
+		}
+		System.out.println(String.format("%-24s %-13s %14s %24s %12s", "scenario", "kind", "ops/s", "range", "bytes/op"));
+		for (Scenario scenario : Scenario.all())
+		{
+			if (!names.isEmpty() && !names.contains(scenario.getName()))
+			{
+				continue;
+			}
+			measure(scenario, warmupMillis, timeMillis, iterations);
+		}
+	}
+
+	private static void measure(Scenario scenario, long warmupMillis, long timeMillis, int iterations) throws PluginException
+	{
+		runFor(scenario, warmupMillis * 1000000L, new long[2]);
+
+		double[] opsPerSecond = new double[iterations];
+		long totalOps = 0;
+		long totalBytes = 0;
+		long[] counts = new long[2];
+		for (int i = 0; i < iterations; i++)
+		{
+			long bytes = AllocationMeter.allocatedBytes();
+			long nanos = runFor(scenario, timeMillis * 1000000L, counts);
+			bytes = AllocationMeter.allocatedBytes() - bytes;
+			opsPerSecond[i] = counts[0] * 1e9 / nanos;
+			totalOps += counts[0];
+			totalBytes += bytes;
+		}
+
+		double mean = 0;
+		for (double ops : opsPerSecond)
+		{
+			mean += ops / iterations;
+		}
+		Arrays.sort(opsPerSecond);
+		String range = String.format("[%.0f, %.0f]", opsPerSecond[0], opsPerSecond[iterations - 1]);
+		String bytesPerOp = AllocationMeter.isSupported() ? String.format("%.1f", (double)totalBytes / totalOps) : "n/a";
+		System.out.println(String.format("%-24s %-13s %14.0f %24s %12s", scenario.getName(), scenario.getKind(), mean, range, bytesPerOp));
+	}
+
+	/**
+	 * Runs the scenario in batches until the given time has passed.
+	 * @param counts long[] receiving the number of operations run
+	 * @return the elapsed time, in nanoseconds
+	 */
+	private static long runFor(Scenario scenario, long nanos, long[] counts) throws PluginException
+	{
+		long start = System.nanoTime();
+		long elapsed;
+		long ops = 0;
+		int hash = 0;
+		do
+		{
+			for (int i = 0; i < BATCH; i++)
+			{
+				hash += scenario.run().length();
+			}
+			ops += BATCH;
+			elapsed = System.nanoTime() - start;
+		}
+		while (elapsed < nanos);
+		sink = hash;
+		counts[0] = ops;
+		return elapsed;
+	}
+}
@@ -0,0 +1,185 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.hannonhill.cascade.api.util.FilenameNormalizer;
+import com.hannonhill.cascade.plugin.OfflineFilenameNormalizer;
+import com.hannonhill.cascade.plugin.SystemNameGenerator;
+import com.hannonhill.cascade.plugin.SystemNameResult;
+
+/**
+ * Correctness suite for the boundary of the table-driven fast path in front of the FilenameNormalizer.  Every
+ * character of ASCII, Latin-1 & Latin Extended-A, and a selection beyond them (spaces & marks from other blocks,
+ * case-mapping oddities such as dotted & dotless i, long s and ligatures, surrogates, non-characters), is named in
+ * several contexts:  alone, between letters, doubled, beside spaces, before a combining mark, and as the second value.
+ * Each name must match the original per-field pipeline through the wrapped normalizer, whichever side of the
+ * table's boundary the character falls.  This is done for several Space Tokens, including a non-ASCII one, with three
+ * normalizers:  a Cascade stand-in, one keeping letters of every script in their case, and one whose output for
+ * punctuation depends on neighbouring characters, so that only its letters, digits & spaces can be table-driven.
+ * The whole suite then runs again with a Turkish default locale, which must not change any name.  Exits with status 1
+ * on any difference.<br/><br/>
+ *
+ * Usage:  <code>NormalizerBoundaryCheck</code>
+ */
+public final class NormalizerBoundaryCheck
+{
+	/** Space Tokens; blank for the default */
+	private static final String[] SPACE_TOKENS = { null, "_", "\u00e9", "I" };
+	/** Characters beyond Latin Extended-A, at or near the boundaries of what may be table-driven */
+	private static final char[] BEYOND = { '\u0180', '\u0300', '\u0301', '\u030a', '\u0307', '\u0345', '\u03a3', '\u03c2', '\u0401',
+		'\u1e9e', '\u2000', '\u2007', '\u200b', '\u200d', '\u2013', '\u2019', '\u2028', '\u202f', '\u20ac', '\u2122', '\u212a',
+		'\u3000', '\u4e2d', '\ud800', '\udbff', '\udc00', '\udfff', '\ufb01', '\ufeff', '\uff21', '\ufffd', '\uffff' };
+	/** Supplementary characters, as surrogate pairs */
+	private static final String[] SUPPLEMENTARY = { "\ud83d\ude00", "\ud835\udc00", "\ud801\udc00", "\ud840\udc00" };
+	/** The most differences reported per normalizer */
+	private static final int MAX_REPORTED = 10;
+
+	private NormalizerBoundaryCheck()
+	{
+	}
+
+	/**
+	 * @param args String[] command-line arguments; none are expected
+	 */
+	public static void main(String[] args)
+	{
+		List<String> characters = new ArrayList<String>();
+		for (char c = 0; c < 0x180; c++)
+		{
+			characters.add(String.valueOf(c));
+		}
+		for (char c : BEYOND)
+		{
+			characters.add(String.valueOf(c));
+		}
+		for (String supplementary : SUPPLEMENTARY)
+		{
+			characters.add(supplementary);
+		}
+		FilenameNormalizer[] normalizers = { new OfflineFilenameNormalizer(), new SlugDifferentialCheck.ScriptPreservingNormalizer(), new ContextualNormalizer() };
+
+		boolean failed = false;
+		Locale defaultLocale = Locale.getDefault();
+		try
+		{
+			for (Locale locale : new Locale[] { Locale.ROOT, new Locale("tr", "TR") })
+			{
+				Locale.setDefault(locale);
+				for (FilenameNormalizer normalizer : normalizers)
+				{
+					failed |= !check(normalizer, characters, locale);
+				}
+			}
+		}
+		finally
+		{
+			Locale.setDefault(defaultLocale);
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	/**
+	 * Names every character in every context with every Space Token.
+	 * @return true if every name matched the original pipeline
+	 */
+	private static boolean check(FilenameNormalizer normalizer, List<String> characters, Locale locale)
+	{
+		int compared = 0;
+		int differences = 0;
+		List<String> reported = new ArrayList<String>();
+		for (String stSpaceToken : SPACE_TOKENS)
+		{
+			SystemNameGenerator titleOnly = new SystemNameGenerator("title", stSpaceToken, null, normalizer);
+			SystemNameGenerator titleAndAuthor = new SystemNameGenerator("title,author", stSpaceToken, null, normalizer);
+			for (String c : characters)
+			{
+				String[] contexts = { c, "x" + c + "x", c + "Ab", "Ab" + c, c + c, " " + c + " ", "Word " + c + " Word", "A" + c + "\u0301", c + "\u00e9I" };
+				for (String stTitle : contexts)
+				{
+					String stName = name(titleOnly, stTitle, null);
+					String stExpected = SlugDifferentialCheck.reference(normalizer, stSpaceToken, null, stTitle);
+					compared++;
+					if (!equal(stExpected, stName))
+					{
+						differences++;
+						report(reported, "title '" + SlugDifferentialCheck.quote(stTitle) + "', Space Token '" + SlugDifferentialCheck.quote(stSpaceToken)
+							+ "': expected '" + SlugDifferentialCheck.quote(stExpected) + "' but was '" + SlugDifferentialCheck.quote(stName) + "'");
+					}
+				}
+				String stName = name(titleAndAuthor, "Title", c);
+				String stExpected = SlugDifferentialCheck.reference(normalizer, stSpaceToken, null, "Title", c);
+				compared++;
+				if (!equal(stExpected, stName))
+				{
+					differences++;
+					report(reported, "author '" + SlugDifferentialCheck.quote(c) + "', Space Token '" + SlugDifferentialCheck.quote(stSpaceToken)
+						+ "': expected '" + SlugDifferentialCheck.quote(stExpected) + "' but was '" + SlugDifferentialCheck.quote(stName) + "'");
+				}
+			}
+		}
+		String stLabel = normalizer.getClass().getSimpleName() + ", " + (locale.toString().length() == 0 ? "root" : locale.toString()) + " locale";
+		System.out.println(String.format("%-50s %7d names  %s", stLabel, compared, differences == 0 ? "ok" : differences + " DIFFERENT"));
+		for (String stDifference : reported)
+		{
+			System.out.println("  " + stDifference);
+		}
+		return differences == 0;
+	}
+
+	/**
+	 * @return the generated name, or null if the generator refused the values
+	 */
+	private static String name(SystemNameGenerator generator, String stTitle, String stAuthor)
+	{
+		StubMetadata metadata = new StubMetadata();
+		metadata.setTitle(stTitle);
+		metadata.setAuthor(stAuthor);
+		SystemNameResult result = generator.generate(metadata, null, null);
+		return result.isSuccess() ? result.getName() : null;
+	}
+
+	private static boolean equal(String stExpected, String stName)
+	{
+		return stExpected == null ? stName == null : stExpected.equals(stName);
+	}
+
+	private static void report(List<String> reported, String stDifference)
+	{
+		if (reported.size() < MAX_REPORTED)
+		{
+			reported.add(stDifference);
+		}
+	}
+
+	/**
+	 * A normalizer whose output for a character depends on its neighbours:  letters & digits are kept, and any run of
+	 * other characters becomes a single dash, which no character-by-character table can reproduce.
+	 */
+	static final class ContextualNormalizer implements FilenameNormalizer
+	{
+		public String normalize(String name, List<Character> additionalAllowedChars)
+		{
+			return normalize(name, null, additionalAllowedChars);
+		}
+
+		public String normalize(String name, Character character, List<Character> additionalAllowedChars)
+		{
+			StringBuilder normalized = new StringBuilder(name.length());
+			for (int i = 0; i < name.length(); i++)
+			{
+				char c = name.charAt(i);
+				if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == ' ')
+				{
+					normalized.append(c);
+				}
+				else if (normalized.length() == 0 || normalized.charAt(normalized.length() - 1) != '-')
+				{
+					normalized.append('-');
+				}
+			}
+			return normalized.toString();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.cms.assetfactory.PluginException;
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.util.FilenameNormalizer;
+import com.hannonhill.cascade.api.util.UtilityProvider;
+import com.hannonhill.cascade.plugin.OfflineFilenameNormalizer;
+import com.hannonhill.cascade.plugin.PageFieldsToSystemNamePlugin;
+import com.hannonhill.cascade.plugin.ResolvedFieldMemo;
+import com.hannonhill.cascade.plugin.bench.StubStructuredDataNode.TextType;
+
+/**
+ * A fixed page & plug-in configuration to measure system naming with:  one call to {@link #run()} is one
+ * <code>doPluginActionPost</code> on a configured plug-in instance, reused between calls as Cascade reuses it.
+ */
+public final class Scenario
+{
+	static final String FIELDIDS_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.fieldids.name";
+	static final String TEMPLATE_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.template.name";
+	static final String MAXLENGTH_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxlength.name";
+	static final String MAXVALUES_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxvalues.name";
+	static final String MAXVALUELENGTH_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxvaluelength.name";
+	static final String SPACETOKEN_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.spacetoken.name";
+	static final String CONCATTOKEN_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.concattoken.name";
+	static final String FRAGMENTCACHE_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.fragmentcache.name";
+	private static final long START_DATE = 1700000000000L;
+
+	private final String name;
+	private final String kind;
+	private final StubPage page;
+	private final PageFieldsToSystemNamePlugin plugin;
+
+	private Scenario(String name, String kind, String stFieldIds, StubPage page)
+	{
+		this(name, kind, page, FIELDIDS_PARAM_NAME_KEY, stFieldIds);
+	}
+
+	/**
+	 * @param parameters String[] plug-in parameter keys, each followed by its value
+	 */
+	private Scenario(String name, String kind, StubPage page, String... parameters)
+	{
+		this.name = name;
+		this.kind = kind;
+		this.page = page;
+		this.plugin = plugin(new OfflineFilenameNormalizer(), parameters);
+	}
+
+	/**
+	 * @param normalizer FilenameNormalizer the plug-in is to use
+	 * @param parameters String[] plug-in parameter keys, each followed by its value
+	 * @return a plug-in configured with the given parameters
+	 */
+	static PageFieldsToSystemNamePlugin plugin(final FilenameNormalizer normalizer, String... parameters)
+	{
+		PageFieldsToSystemNamePlugin plugin = new PageFieldsToSystemNamePlugin();
+		for (int i = 0; i < parameters.length; i += 2)
+		{
+			plugin.setParameter(parameters[i], parameters[i + 1]);
+		}
+		plugin.setUtilityProvider(new UtilityProvider()
+		{
+			public FilenameNormalizer getFilenameNormalizer()
+			{
+				return normalizer;
+			}
+		});
+		return plugin;
+	}
+
+	/**
+	 * @return the scenario's name, e.g. <code>structured-wide</code>
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return the kind of field identifier the scenario exercises:  wired, dynamic, structured, date, multi-valued,
+	 * mixed or template
+	 */
+	public String getKind()
+	{
+		return kind;
+	}
+
+	/**
+	 * Names the scenario's page once, as a new submission:  nothing resolved by an earlier run is reused.
+	 * @return the generated system name
+	 * @throws PluginException if the page cannot be named
+	 */
+	public String run() throws PluginException
+	{
+		ResolvedFieldMemo.discard(page);
+		plugin.doPluginActionPost(null, page);
+		return page.getName();
+	}
+
+	/**
+	 * @return all scenarios, in a fixed order
+	 */
+	public static List<Scenario> all()
+	{
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+
+		StubMetadata metadata = new StubMetadata();
+		metadata.setTitle("The Quick Brown Fox Jumps Over the Lazy Dog");
+		scenarios.add(new Scenario("wired-title", "wired", "title", new StubPage(metadata, null)));
+
+		metadata = new StubMetadata();
+		metadata.setDescription(words(600));
+		scenarios.add(new Scenario("wired-long-description", "wired", "description", new StubPage(metadata, null)));
+
+		metadata = new StubMetadata();
+		metadata.setTitle("The Quick Brown Fox Jumps Over the Lazy Dog");
+		metadata.setDescription(words(600));
+		scenarios.add(new Scenario("capped-long-description", "wired", new StubPage(metadata, null), FIELDIDS_PARAM_NAME_KEY, "description,title", MAXLENGTH_PARAM_NAME_KEY, "64"));
+
+		metadata = new StubMetadata();
+		metadata.setStartDate(new Date(START_DATE));
+		metadata.setEndDate(new Date(START_DATE + 86400000L));
+		scenarios.add(new Scenario("wired-dates", "date", "start-date,end-date", new StubPage(metadata, null)));
+
+		metadata = new StubMetadata();
+		DynamicMetadataField[] dynamicFields = new DynamicMetadataField[200];
+		for (int i = 0; i < dynamicFields.length; i++)
+		{
+			dynamicFields[i] = new StubDynamicMetadataField("field-" + i, "Value " + i);
+		}
+		metadata.setDynamicFields(dynamicFields);
+		scenarios.add(new Scenario("dynamic-many-fields", "dynamic", "dynamic-metadata/field-199", new StubPage(metadata, null)));
+
+		metadata = new StubMetadata();
+		metadata.setDynamicFields(new DynamicMetadataField[] { new StubDynamicMetadataField("tags", values("Tag", 100)) });
+		scenarios.add(new Scenario("dynamic-multi-value", "multi-valued", "dynamic-metadata/tags", new StubPage(metadata, null)));
+
+		StructuredDataNode[] wide = new StructuredDataNode[500];
+		for (int i = 0; i < wide.length; i++)
+		{
+			wide[i] = StubStructuredDataNode.text("field-" + i, TextType.PLAIN_TEXT, "Value " + i);
+		}
+		scenarios.add(new Scenario("structured-wide", "structured", "system-data-structure/field-499", new StubPage(new StubMetadata(), wide)));
+
+		StructuredDataNode deep = StubStructuredDataNode.text("leaf", TextType.PLAIN_TEXT, "Deep Value");
+		StringBuilder deepPath = new StringBuilder("leaf");
+		for (int i = 23; i >= 0; i--)
+		{
+			deep = StubStructuredDataNode.group("level-" + i, StubStructuredDataNode.text("sibling", TextType.PLAIN_TEXT, "Sibling"), deep);
+			deepPath.insert(0, "level-" + i + "/");
+		}
+		scenarios.add(new Scenario("structured-deep", "structured", "system-data-structure/" + deepPath, new StubPage(new StubMetadata(), new StructuredDataNode[] { deep })));
+
+		StructuredDataNode[] multiselect = { StubStructuredDataNode.text("options", TextType.MULTISELECT, values("Option", 200)) };
+		scenarios.add(new Scenario("structured-multiselect", "multi-valued", "system-data-structure/options", new StubPage(new StubMetadata(), multiselect)));
+		scenarios.add(new Scenario("bounded-multiselect", "multi-valued", new StubPage(new StubMetadata(), multiselect), FIELDIDS_PARAM_NAME_KEY,
+				"system-data-structure/options", MAXVALUES_PARAM_NAME_KEY, "20", MAXVALUELENGTH_PARAM_NAME_KEY, "100"));
+
+		StructuredDataNode[] checkbox = { StubStructuredDataNode.text("features", TextType.CHECKBOX, "Parking", null, "Wheelchair Access", "", "Wi-Fi") };
+		scenarios.add(new Scenario("structured-checkbox", "multi-valued", "system-data-structure/features", new StubPage(new StubMetadata(), checkbox)));
+
+		StructuredDataNode[] dates = { StubStructuredDataNode.text("published", TextType.DATETIME, String.valueOf(START_DATE)),
+			StubStructuredDataNode.text("event", TextType.CALENDAR, "03-15-2021") };
+		scenarios.add(new Scenario("structured-dates", "date", "system-data-structure/published,system-data-structure/event", new StubPage(new StubMetadata(), dates)));
+
+		metadata = new StubMetadata();
+		metadata.setTitle("Cr\u00e8me Br\u00fbl\u00e9e Recipe");
+		metadata.setStartDate(new Date(START_DATE));
+		metadata.setDynamicFields(new DynamicMetadataField[] { new StubDynamicMetadataField("category", "Desserts") });
+		StructuredDataNode[] mixed = { StubStructuredDataNode.group("group", StubStructuredDataNode.text("headline", TextType.PLAIN_TEXT, "Weekend Special")) };
+		scenarios.add(new Scenario("mixed", "mixed", "title,start-date,dynamic-metadata/category,system-data-structure/group/headline", new StubPage(metadata, mixed)));
+
+		metadata = new StubMetadata();
+		metadata.setTitle("The Quick Brown Fox Jumps Over the Lazy Dog");
+		metadata.setStartDate(new Date(START_DATE));
+		metadata.setDescription(words(40));
+		scenarios.add(new Scenario("template", "template", new StubPage(metadata, null), TEMPLATE_PARAM_NAME_KEY, "news-{start-date|year}-{title|truncate:20}_{description|words:5}"));
+
+		return Collections.unmodifiableList(scenarios);
+	}
+
+	private static String[] values(String prefix, int count)
+	{
+		String[] values = new String[count];
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = prefix + " " + i;
+		}
+		return values;
+	}
+
+	private static String words(int count)
+	{
+		String[] words = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit" };
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++)
+		{
+			text.append(i == 0 ? "" : " ").append(words[i % words.length]);
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,318 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import com.cms.assetfactory.FatalPluginException;
+import com.cms.assetfactory.PluginException;
+import com.hannonhill.cascade.api.util.FilenameNormalizer;
+import com.hannonhill.cascade.plugin.OfflineFilenameNormalizer;
+import com.hannonhill.cascade.plugin.PageFieldsToSystemNamePlugin;
+
+/**
+ * Differential check of the single-pass slug builder against the original per-field pipeline,
+ * <code>normalize(value).trim().replace(" ", spaceToken).toLowerCase()</code> joined with the Concatenation Token, over
+ * a {@link Corpus} of titles.  Every title is named by the plug-in together with another as its author, with several
+ * Space & Concatenation Tokens and two normalizers of different character sets, and must match the original byte for
+ * byte (lower-casing aside, which is now locale-independent).  The same is then checked with a Fragment Cache, and
+ * with a range of Maximum Name Lengths, where a name must either match the original or be a prefix of it ending with
+ * the Concatenation Token and an 8-digit hash, and never exceed the limit.  Exits with status 1 on any
+ * difference.<br/><br/>
+ *
+ * Usage:  <code>SlugDifferentialCheck [-titles &lt;n&gt;]</code>
+ */
+public final class SlugDifferentialCheck
+{
+	private static final long SEED = 20240523L;
+	/** Space & Concatenation Token pairs; non-ASCII & upper-case tokens take the builder's slower paths */
+	private static final String[][] TOKENS = { { null, null }, { "_", "--" }, { "X Y", "." }, { "\u00e9", "_" }, { "-", "~" } };
+	private static final int[] MAX_LENGTHS = { 10, 16, 33, 60, 120 };
+	/** Authors & titles which once made the builder fail with a Maximum Name Length */
+	private static final String[][] REGRESSIONS = { { "Bob", "Intro " + repeat('\u4e2d', 150) + " end" }, { repeat('(', 150) + "Hello", "Bob" } };
+	/** The most differences reported per mode */
+	private static final int MAX_REPORTED = 10;
+
+	private static int compared;
+	private static int differences;
+	private static List<String> reported;
+
+	private SlugDifferentialCheck()
+	{
+	}
+
+	/**
+	 * @param args String[] command-line arguments; see the class description
+	 * @throws PluginException if a page cannot be named for any reason but its field values
+	 */
+	public static void main(String[] args) throws PluginException
+	{
+		int titleCount = 50000;
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			if (args[i].equals("-titles"))
+			{
+				titleCount = Integer.parseInt(args[i + 1]);
+			}
+		}
+		List<String> titles = Corpus.titles(titleCount, SEED);
+		FilenameNormalizer[] normalizers = { new OfflineFilenameNormalizer(), new ScriptPreservingNormalizer() };
+
+		boolean failed = false;
+		for (FilenameNormalizer normalizer : normalizers)
+		{
+			for (String[] tokens : TOKENS)
+			{
+				start();
+				PageFieldsToSystemNamePlugin plugin = Scenario.plugin(normalizer, Scenario.FIELDIDS_PARAM_NAME_KEY, "title,author",
+					Scenario.SPACETOKEN_PARAM_NAME_KEY, tokens[0], Scenario.CONCATTOKEN_PARAM_NAME_KEY, tokens[1]);
+				for (int i = 0; i < titles.size(); i++)
+				{
+					String stTitle = titles.get(i);
+					String stAuthor = titles.get((i * 7 + 1) % titles.size());
+					compare(stTitle, stAuthor, name(plugin, stTitle, stAuthor), reference(normalizer, tokens[0], tokens[1], stTitle, stAuthor));
+				}
+				failed |= !finish(normalizer.getClass().getSimpleName() + " space='" + quote(tokens[0]) + "' concat='" + quote(tokens[1]) + "'");
+			}
+
+			// fragments served from the cache must be those the builder would have built
+			start();
+			PageFieldsToSystemNamePlugin cached = Scenario.plugin(normalizer, Scenario.FIELDIDS_PARAM_NAME_KEY, "title,author", Scenario.FRAGMENTCACHE_PARAM_NAME_KEY, "256");
+			for (int pass = 0; pass < 2; pass++)
+			{
+				for (int i = 0; i < titles.size(); i++)
+				{
+					String stTitle = titles.get(i);
+					String stAuthor = titles.get(i % 97);
+					compare(stTitle, stAuthor, name(cached, stTitle, stAuthor), reference(normalizer, null, null, stTitle, stAuthor));
+				}
+			}
+			failed |= !finish(normalizer.getClass().getSimpleName() + " with Fragment Cache");
+
+			for (int maxLength : MAX_LENGTHS)
+			{
+				start();
+				PageFieldsToSystemNamePlugin capped = Scenario.plugin(normalizer, Scenario.FIELDIDS_PARAM_NAME_KEY, "author,title", Scenario.MAXLENGTH_PARAM_NAME_KEY, String.valueOf(maxLength));
+				for (String[] values : REGRESSIONS)
+				{
+					compareCapped(values[0], values[1], name(capped, values[1], values[0]), reference(normalizer, null, null, values[0], values[1]), maxLength);
+				}
+				Random random = new Random(SEED + maxLength);
+				for (int i = 0; i < titles.size(); i++)
+				{
+					String stAuthor = titles.get(i);
+					String stTitle = longValue(titles, random);
+					String stName = name(capped, stTitle, stAuthor);
+					compareCapped(stAuthor, stTitle, stName, reference(normalizer, null, null, stAuthor, stTitle), maxLength);
+					String stAgain = name(capped, stTitle, stAuthor);
+					if (stName != null && !stName.equals(stAgain))
+					{
+						difference(stAuthor, stTitle, "named '" + quote(stName) + "' then '" + quote(stAgain) + "'");
+					}
+				}
+				failed |= !finish(normalizer.getClass().getSimpleName() + " with Maximum Name Length " + maxLength);
+			}
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	/**
+	 * @return a value of several titles, some with long runs of characters which normalization drops
+	 */
+	private static String longValue(List<String> titles, Random random)
+	{
+		StringBuilder value = new StringBuilder();
+		int parts = 1 + random.nextInt(8);
+		for (int i = 0; i < parts; i++)
+		{
+			value.append(i == 0 ? "" : " ").append(titles.get(random.nextInt(titles.size())));
+			if (random.nextInt(4) == 0)
+			{
+				// e.g. a title in CJK, or a row of punctuation, of which nothing is kept
+				char c = random.nextBoolean() ? (char)(0x4e00 + random.nextInt(500)) : '(';
+				for (int j = 50 + random.nextInt(150); j > 0; j--)
+				{
+					value.append(c);
+				}
+			}
+		}
+		return value.toString();
+	}
+
+	private static String repeat(char c, int count)
+	{
+		StringBuilder repeated = new StringBuilder(count);
+		for (int i = 0; i < count; i++)
+		{
+			repeated.append(c);
+		}
+		return repeated.toString();
+	}
+
+	/**
+	 * Names a page with the given title & author.
+	 * @param stTitle String the page's title
+	 * @param stAuthor String the page's author
+	 * @return the name, or null if the plug-in refused the values
+	 */
+	private static String name(PageFieldsToSystemNamePlugin plugin, String stTitle, String stAuthor) throws PluginException
+	{
+		StubMetadata metadata = new StubMetadata();
+		metadata.setTitle(stTitle);
+		metadata.setAuthor(stAuthor);
+		StubPage page = new StubPage(metadata, null);
+		try
+		{
+			plugin.doPluginActionPost(null, page);
+		}
+		catch (FatalPluginException e)
+		{
+			return null;
+		}
+		return page.getName();
+	}
+
+	/**
+	 * The original per-field pipeline for Wired Metadata values, which were trimmed before being normalized, with
+	 * locale-independent lower-casing.
+	 * @return the name the original pipeline generated, or null if it refused the values
+	 */
+	static String reference(FilenameNormalizer normalizer, String stSpaceToken, String stConcatToken, String... values)
+	{
+		String stSpace = stSpaceToken == null || stSpaceToken.trim().equals("") ? "-" : stSpaceToken;
+		String stConcat = stConcatToken == null || stConcatToken.trim().equals("") ? "-" : stConcatToken;
+		StringBuilder newName = new StringBuilder();
+		for (String value : values)
+		{
+			if (value == null || value.trim().equals(""))
+			{
+				return null;
+			}
+			String stNodeVal = normalizer.normalize(value.trim(), new ArrayList<Character>());
+			stNodeVal = stNodeVal.trim().replace(" ", stSpace).toLowerCase(Locale.ROOT);
+			newName.append(stNodeVal);
+			newName.append(stConcat);
+		}
+		if (newName.length() > stConcat.length())
+		{
+			newName.delete(newName.length() - stConcat.length(), newName.length());
+		}
+		String stNewName = newName.toString();
+		return stNewName.trim().equals("") ? null : stNewName;
+	}
+
+	private static void compare(String stFirst, String stSecond, String stName, String stExpected)
+	{
+		compared++;
+		if (stExpected == null ? stName != null : !stExpected.equals(stName))
+		{
+			difference(stFirst, stSecond, "expected '" + quote(stExpected) + "' but was '" + quote(stName) + "'");
+		}
+	}
+
+	/**
+	 * Checks a name generated with a Maximum Name Length against the unlimited name.
+	 */
+	private static void compareCapped(String stFirst, String stSecond, String stName, String stExpected, int maxLength)
+	{
+		if (stExpected == null || stName == null || stExpected.length() <= maxLength)
+		{
+			compare(stFirst, stSecond, stName, stExpected);
+			return;
+		}
+		compared++;
+		int hashStart = stName.length() - 8;
+		String stPrefix = hashStart > 0 ? stName.substring(0, hashStart - 1) : "";
+		boolean hashed = hashStart > 0 && stName.charAt(hashStart - 1) == '-' && stName.substring(hashStart).matches("[0-9a-f]{8}");
+		if (stName.length() > maxLength || stName.indexOf('\0') >= 0 || !hashed || !stExpected.startsWith(stPrefix))
+		{
+			difference(stFirst, stSecond, "'" + quote(stName) + "' is not a prefix of '" + quote(stExpected) + "' of at most " + maxLength + " characters ending with a hash");
+		}
+	}
+
+	private static void start()
+	{
+		compared = 0;
+		differences = 0;
+		reported = new ArrayList<String>();
+	}
+
+	private static void difference(String stFirst, String stSecond, String stDescription)
+	{
+		differences++;
+		if (reported.size() < MAX_REPORTED)
+		{
+			reported.add("('" + quote(stFirst) + "', '" + quote(stSecond) + "'): " + stDescription);
+		}
+	}
+
+	/**
+	 * Reports the current mode.
+	 * @return true if it had no differences
+	 */
+	private static boolean finish(String stMode)
+	{
+		System.out.println(String.format("%-60s %8d names  %s", stMode, compared, differences == 0 ? "ok" : differences + " DIFFERENT"));
+		for (String stDifference : reported)
+		{
+			System.out.println("  " + stDifference);
+		}
+		return differences == 0;
+	}
+
+	/**
+	 * @return the text with non-ASCII & control characters escaped, for reporting
+	 */
+	static String quote(String text)
+	{
+		if (text == null)
+		{
+			return "(none)";
+		}
+		StringBuilder quoted = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if (c < 0x20 || c >= 0x7f)
+			{
+				quoted.append(String.format("\\u%04x", Integer.valueOf(c)));
+			}
+			else
+			{
+				quoted.append(c);
+			}
+		}
+		return quoted.toString();
+	}
+
+	/**
+	 * A normalizer unlike Cascade's:  letters & digits of any script are kept, in their original case, and every
+	 * other character but space, dash, underscore & period is dropped.
+	 */
+	static final class ScriptPreservingNormalizer implements FilenameNormalizer
+	{
+		public String normalize(String name, List<Character> additionalAllowedChars)
+		{
+			return normalize(name, null, additionalAllowedChars);
+		}
+
+		public String normalize(String name, Character character, List<Character> additionalAllowedChars)
+		{
+			StringBuilder normalized = new StringBuilder(name.length());
+			for (int i = 0; i < name.length(); i++)
+			{
+				char c = name.charAt(i);
+				if (Character.isLetterOrDigit(c) || Character.isSurrogate(c) || c == ' ' || c == '-' || c == '_' || c == '.')
+				{
+					normalized.append(c);
+				}
+				else if (character != null)
+				{
+					normalized.append(character.charValue());
+				}
+			}
+			return normalized.toString();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.Identifier;
+
+/**
+ * In-memory DynamicMetadataField for benchmarks.
+ */
+public final class StubDynamicMetadataField implements DynamicMetadataField
+{
+	private String name;
+	private final String[] values;
+
+	/**
+	 * @param name String field name
+	 * @param values String... field values
+	 */
+	public StubDynamicMetadataField(String name, String... values)
+	{
+		this.name = name;
+		this.values = values;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public void setName(String name)
+	{
+		this.name = name;
+	}
+
+	public Identifier getIdentifer()
+	{
+		return null;
+	}
+
+	public String getLabel()
+	{
+		return name;
+	}
+
+	public String[] getValues()
+	{
+		return values;
+	}
+
+	public boolean isCheckbox()
+	{
+		return false;
+	}
+
+	public boolean isDropdown()
+	{
+		return false;
+	}
+
+	public boolean isRadio()
+	{
+		return false;
+	}
+
+	public boolean isMultiple()
+	{
+		return values.length > 1;
+	}
+}
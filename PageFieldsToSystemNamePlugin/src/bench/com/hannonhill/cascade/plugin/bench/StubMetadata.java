@@ -0,0 +1,134 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.util.Date;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.Metadata;
+
+/**
+ * In-memory Metadata for benchmarks.  String fields default to empty, as they do in Cascade.
+ */
+public final class StubMetadata implements Metadata
+{
+	private String author = "";
+	private String displayName = "";
+	private String keywords = "";
+	private String description = "";
+	private String summary = "";
+	private String teaser = "";
+	private String title = "";
+	private Date endDate;
+	private Date reviewDate;
+	private Date startDate;
+	private DynamicMetadataField[] dynamicFields;
+
+	public String getAuthor()
+	{
+		return author;
+	}
+
+	public void setAuthor(String author)
+	{
+		this.author = author;
+	}
+
+	public String getDisplayName()
+	{
+		return displayName;
+	}
+
+	public void setDisplayName(String displayName)
+	{
+		this.displayName = displayName;
+	}
+
+	public String getKeywords()
+	{
+		return keywords;
+	}
+
+	public void setKeywords(String keywords)
+	{
+		this.keywords = keywords;
+	}
+
+	public String getDescription()
+	{
+		return description;
+	}
+
+	public void setDescription(String description)
+	{
+		this.description = description;
+	}
+
+	public String getSummary()
+	{
+		return summary;
+	}
+
+	public void setSummary(String summary)
+	{
+		this.summary = summary;
+	}
+
+	public String getTeaser()
+	{
+		return teaser;
+	}
+
+	public void setTeaser(String teaser)
+	{
+		this.teaser = teaser;
+	}
+
+	public String getTitle()
+	{
+		return title;
+	}
+
+	public void setTitle(String title)
+	{
+		this.title = title;
+	}
+
+	public Date getEndDate()
+	{
+		return endDate;
+	}
+
+	public void setEndDate(Date endDate)
+	{
+		this.endDate = endDate;
+	}
+
+	public Date getReviewDate()
+	{
+		return reviewDate;
+	}
+
+	public void setReviewDate(Date reviewDate)
+	{
+		this.reviewDate = reviewDate;
+	}
+
+	public Date getStartDate()
+	{
+		return startDate;
+	}
+
+	public void setStartDate(Date startDate)
+	{
+		this.startDate = startDate;
+	}
+
+	public DynamicMetadataField[] getDynamicFields()
+	{
+		return dynamicFields;
+	}
+
+	public void setDynamicFields(DynamicMetadataField[] dynamicFields)
+	{
+		this.dynamicFields = dynamicFields;
+	}
+}
@@ -0,0 +1,138 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import java.util.Date;
+
+import com.hannonhill.cascade.api.asset.common.Identifier;
+import com.hannonhill.cascade.api.asset.common.Metadata;
+import com.hannonhill.cascade.api.asset.common.PathIdentifier;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.asset.home.Folder;
+import com.hannonhill.cascade.api.asset.home.Page;
+
+/**
+ * In-memory Page for benchmarks, holding just what system naming reads & writes.
+ */
+public final class StubPage implements Page
+{
+	private final Metadata metadata;
+	private final StructuredDataNode[] structuredData;
+	private String name = "hidden";
+	private boolean hideSystemName;
+
+	/**
+	 * @param metadata Metadata of the page
+	 * @param structuredData StructuredDataNode[] top-level nodes of the page, or null
+	 */
+	public StubPage(Metadata metadata, StructuredDataNode[] structuredData)
+	{
+		this.metadata = metadata;
+		this.structuredData = structuredData;
+	}
+
+	public String getXHTML()
+	{
+		return null;
+	}
+
+	public StructuredDataNode[] getStructuredData()
+	{
+		return structuredData;
+	}
+
+	public Metadata getMetadata()
+	{
+		return metadata;
+	}
+
+	public boolean getShouldBePublished()
+	{
+		return false;
+	}
+
+	public void setIncludeWhenPublishing(boolean includeWhenPublishing)
+	{
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public void setName(String name)
+	{
+		this.name = name;
+	}
+
+	public Identifier getIdentifer()
+	{
+		return null;
+	}
+
+	public PathIdentifier getIdentifier()
+	{
+		return null;
+	}
+
+	public PathIdentifier getParentFolderIdentifier()
+	{
+		return null;
+	}
+
+	public void setParentFolderIdentifier(Identifier parentFolderIdentifier)
+	{
+	}
+
+	public Folder getParentFolder()
+	{
+		return null;
+	}
+
+	public void setParentFolder(Folder parentFolder)
+	{
+	}
+
+	public Date getCreatedOn()
+	{
+		return null;
+	}
+
+	public String getCreatedBy()
+	{
+		return null;
+	}
+
+	public Date getLastModified()
+	{
+		return null;
+	}
+
+	public String getLastModifiedBy()
+	{
+		return null;
+	}
+
+	public int getFolderOrder()
+	{
+		return 0;
+	}
+
+	public String getPath()
+	{
+		return "/" + name;
+	}
+
+	public String getSiteId()
+	{
+		return null;
+	}
+
+	public void setHideSystemName(boolean hideSystemName)
+	{
+		this.hideSystemName = hideSystemName;
+	}
+
+	public boolean isHideSystemName()
+	{
+		return hideSystemName;
+	}
+}
@@ -0,0 +1,133 @@
+package com.hannonhill.cascade.plugin.bench;
+
+import com.hannonhill.cascade.api.asset.common.PathIdentifier;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.asset.common.TextNodeOptions;
+
+/**
+ * In-memory StructuredDataNode for benchmarks; text nodes are their own TextNodeOptions.
+ */
+public final class StubStructuredDataNode implements StructuredDataNode, TextNodeOptions
+{
+	/**
+	 * The types of text node.
+	 */
+	public enum TextType
+	{
+		PLAIN_TEXT, CHECKBOX, RADIO, CALENDAR, DATETIME, DROPDOWN, MULTISELECT, WYSIWYG
+	}
+
+	private final String identifier;
+	private final TextType textType;
+	private final String[] textValues;
+	private final StructuredDataNode[] group;
+
+	private StubStructuredDataNode(String identifier, TextType textType, String[] textValues, StructuredDataNode[] group)
+	{
+		this.identifier = identifier;
+		this.textType = textType;
+		this.textValues = textValues;
+		this.group = group;
+	}
+
+	/**
+	 * @param identifier String field identifier
+	 * @param textType TextType of the field
+	 * @param textValues String... field values
+	 * @return a text node
+	 */
+	public static StubStructuredDataNode text(String identifier, TextType textType, String... textValues)
+	{
+		return new StubStructuredDataNode(identifier, textType, textValues, null);
+	}
+
+	/**
+	 * @param identifier String group identifier
+	 * @param children StructuredDataNode... nodes of the group
+	 * @return a group node
+	 */
+	public static StubStructuredDataNode group(String identifier, StructuredDataNode... children)
+	{
+		return new StubStructuredDataNode(identifier, null, null, children);
+	}
+
+	public String getIdentifier()
+	{
+		return identifier;
+	}
+
+	public boolean isGroup()
+	{
+		return group != null;
+	}
+
+	public boolean isText()
+	{
+		return textType != null;
+	}
+
+	public TextNodeOptions getTextNodeOptions()
+	{
+		return textType == null ? null : this;
+	}
+
+	public boolean isAsset()
+	{
+		return false;
+	}
+
+	public StructuredDataNode[] getGroup()
+	{
+		return group;
+	}
+
+	public String[] getTextValues()
+	{
+		return textValues;
+	}
+
+	public PathIdentifier getAssetIdentifier()
+	{
+		return null;
+	}
+
+	public boolean isPlainText()
+	{
+		return textType == TextType.PLAIN_TEXT;
+	}
+
+	public boolean isCheckbox()
+	{
+		return textType == TextType.CHECKBOX;
+	}
+
+	public boolean isRadio()
+	{
+		return textType == TextType.RADIO;
+	}
+
+	public boolean isCalendar()
+	{
+		return textType == TextType.CALENDAR;
+	}
+
+	public boolean isDatetime()
+	{
+		return textType == TextType.DATETIME;
+	}
+
+	public boolean isDropdown()
+	{
+		return textType == TextType.DROPDOWN;
+	}
+
+	public boolean isMultiselect()
+	{
+		return textType == TextType.MULTISELECT;
+	}
+
+	public boolean isWysiwyg()
+	{
+		return textType == TextType.WYSIWYG;
+	}
+}
@@ -0,0 +1,469 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.asset.home.Page;
+
+/**
+ * Generates system names for many pages at once, e.g. when migrating or re-naming a site.  Pages are read from an
+ * iterator and named in parallel on a caller-supplied executor (a thread pool, a fork-join pool, etc.); at most a
+ * fixed number of pages are in flight at any time, so the iterator may lazily produce any number of pages.<br/><br/>
+ *
+ * Naming never throws:  every page yields an {@link Outcome} holding either its {@link SystemNameResult} or the
+ * exception raised while reading it (or while the iterator produced it).  Outcomes keep the page's path rather than
+ * the page, so no page is retained once named; for runs too large to keep every outcome, an {@link OutcomeListener}
+ * receives each outcome as it is named instead.  Once all pages are named, the paths of pages which would share a name
+ * within the same folder are reported as duplicates.  If the iterator keeps failing, the run is abandoned and the
+ * report says so.  Names are only computed; they are not applied to the pages.
+ */
+public final class BulkSystemNamer
+{
+	/** Number of consecutive failures of the iterator after which the run is abandoned */
+	private static final int MAX_CONSECUTIVE_ITERATOR_FAILURES = 100;
+
+	private final SystemNameGenerator generator;
+	private final Executor executor;
+	private final int maxInFlight;
+
+	/**
+	 * @param generator SystemNameGenerator to name the pages with
+	 * @param executor Executor to name the pages on
+	 * @param maxInFlight int maximum number of pages submitted to the executor but not yet named; must be positive
+	 */
+	public BulkSystemNamer(SystemNameGenerator generator, Executor executor, int maxInFlight)
+	{
+		if (maxInFlight < 1)
+		{
+			throw new IllegalArgumentException("maxInFlight must be at least 1, but was " + maxInFlight + ".");
+		}
+		this.generator = generator;
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Names all pages produced by the iterator, blocking until every page has been named.
+	 * @param pages Iterator of the pages to be named; only used from the calling thread
+	 * @return the Report of all outcomes, in iteration order
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for the executor
+	 */
+	public Report name(Iterator<? extends Page> pages) throws InterruptedException
+	{
+		return name(pages, null);
+	}
+
+	/**
+	 * Names all pages produced by the iterator, blocking until every page has been named.  When a listener is given,
+	 * outcomes are passed to it as they are named and are not listed in the report; only the path of the first page
+	 * to generate each name in a folder is kept, to find duplicates by.
+	 * @param pages Iterator of the pages to be named; only used from the calling thread
+	 * @param listener OutcomeListener to receive each outcome, or null to keep every outcome in the report
+	 * @return the Report of the run
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for the executor
+	 */
+	public Report name(Iterator<? extends Page> pages, OutcomeListener listener) throws InterruptedException
+	{
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		Report report = new Report(listener == null);
+		try
+		{
+			int iteratorFailures = 0;
+			while (iteratorFailures < MAX_CONSECUTIVE_ITERATOR_FAILURES)
+			{
+				Page page;
+				try
+				{
+					if (!pages.hasNext())
+					{
+						break;
+					}
+					page = pages.next();
+					iteratorFailures = 0;
+				}
+				catch (RuntimeException e)
+				{
+					// the page could not be read, so record it as failed & carry on with the next
+					iteratorFailures++;
+					report.iteratorError = e;
+					report.abandoned = iteratorFailures == MAX_CONSECUTIVE_ITERATOR_FAILURES;
+					Outcome outcome = report.add(null);
+					outcome.error = e;
+					report.complete(outcome, listener);
+					continue;
+				}
+
+				Outcome outcome = report.add(page);
+				inFlight.acquire();
+				try
+				{
+					executor.execute(new NamingTask(page, outcome, report, listener, inFlight));
+				}
+				catch (RejectedExecutionException e)
+				{
+					inFlight.release();
+					outcome.error = e;
+					report.complete(outcome, listener);
+				}
+			}
+		}
+		finally
+		{
+			// wait for the outstanding pages; acquiring the semaphore also publishes their outcomes to this thread
+			inFlight.acquireUninterruptibly(maxInFlight);
+			inFlight.release(maxInFlight);
+		}
+		report.finish();
+		return report;
+	}
+
+	/**
+	 * Receives the outcome of each page of a run as soon as it is known.  Outcomes are delivered on the executor's
+	 * threads (or on the calling thread when a page could not be submitted), so implementations must be thread-safe.
+	 */
+	public interface OutcomeListener
+	{
+		/**
+		 * @param outcome Outcome of naming one page
+		 */
+		void outcomeReady(Outcome outcome);
+	}
+
+	/**
+	 * Names a single page, recording any exception in its outcome.
+	 */
+	private final class NamingTask implements Runnable
+	{
+		private final Page page;
+		private final Outcome outcome;
+		private final Report report;
+		private final OutcomeListener listener;
+		private final Semaphore inFlight;
+
+		NamingTask(Page page, Outcome outcome, Report report, OutcomeListener listener, Semaphore inFlight)
+		{
+			this.page = page;
+			this.outcome = outcome;
+			this.report = report;
+			this.listener = listener;
+			this.inFlight = inFlight;
+		}
+
+		public void run()
+		{
+			try
+			{
+				outcome.folderKey = SiblingNameRegistry.folderKey(page);
+				DynamicMetadataField[] dynamicMetadata = generator.usesDynamicMetadata() ? page.getMetadata().getDynamicFields() : null;
+				StructuredDataNode[] structuredData = generator.usesStructuredData() ? page.getStructuredData() : null;
+				outcome.result = generator.generate(page.getMetadata(), dynamicMetadata, structuredData);
+			}
+			catch (RuntimeException e)
+			{
+				outcome.error = e;
+			}
+			finally
+			{
+				try
+				{
+					report.complete(outcome, listener);
+				}
+				finally
+				{
+					inFlight.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The outcome of naming one page.
+	 */
+	public static final class Outcome
+	{
+		private final String path;
+		private String folderKey;
+		private SystemNameResult result;
+		private Exception error;
+
+		Outcome(String path)
+		{
+			this.path = path;
+		}
+
+		/**
+		 * @return the path of the page named, or null if it could not be read
+		 */
+		public String getPath()
+		{
+			return path;
+		}
+
+		/**
+		 * @return the id (or failing that the path) of the page's folder, or null if it is not known
+		 */
+		public String getFolderKey()
+		{
+			return folderKey;
+		}
+
+		/**
+		 * @return the naming result, or null if an exception was raised while reading the page
+		 */
+		public SystemNameResult getResult()
+		{
+			return result;
+		}
+
+		/**
+		 * @return the exception raised while reading the page or producing it from the iterator, or null if there was none
+		 */
+		public Exception getError()
+		{
+			return error;
+		}
+
+		/**
+		 * @return true if a name was generated for the page
+		 */
+		public boolean isSuccess()
+		{
+			return result != null && result.isSuccess();
+		}
+
+		@Override
+		public String toString()
+		{
+			return path + " => " + (error != null ? error.toString() : String.valueOf(result));
+		}
+	}
+
+
+	/**
+	 * The outcomes of a bulk naming run.  Outcomes are tallied as they complete, by any number of threads at once;
+	 * unless every outcome is to be listed, only the path of the first page to generate each name in a folder, and the
+	 * paths of its duplicates, are kept beyond that.
+	 */
+	public static final class Report
+	{
+		/** Stands for the path of a page which could not be read, as the maps of names cannot hold null */
+		private static final String UNKNOWN_PATH = new String();
+
+		/** Every outcome in iteration order, or null if outcomes are passed to a listener instead */
+		private final List<Outcome> outcomes;
+		/** For each folder, the path of the first page to generate each name; then, once a name is repeated, a list of every such path */
+		private final ConcurrentMap<String, ConcurrentMap<String, Object>> namesByFolder = new ConcurrentHashMap<String, ConcurrentMap<String, Object>>();
+		private final AtomicInteger pageCount = new AtomicInteger();
+		private final AtomicInteger successCount = new AtomicInteger();
+		private Map<String, Map<String, List<String>>> duplicates;
+		/** The last exception raised by the iterator; only set by the iterating thread */
+		private RuntimeException iteratorError;
+		/** Whether the run stopped because the iterator kept failing; only set by the iterating thread */
+		private boolean abandoned;
+
+		Report(boolean keepOutcomes)
+		{
+			this.outcomes = keepOutcomes ? new ArrayList<Outcome>() : null;
+		}
+
+		/**
+		 * Starts the outcome of the next page; called from the iterating thread only.
+		 */
+		Outcome add(Page page)
+		{
+			String path = null;
+			if (page != null)
+			{
+				try
+				{
+					path = page.getPath();
+				}
+				catch (RuntimeException e)
+				{
+					// leave the page unidentified; naming it will report the problem
+				}
+			}
+			Outcome outcome = new Outcome(path);
+			if (outcomes != null)
+			{
+				outcomes.add(outcome);
+			}
+			return outcome;
+		}
+
+		/**
+		 * Tallies a finished outcome & passes it to the listener, if any.
+		 */
+		void complete(Outcome outcome, OutcomeListener listener)
+		{
+			pageCount.incrementAndGet();
+			if (outcome.isSuccess())
+			{
+				successCount.incrementAndGet();
+				if (outcome.folderKey != null)
+				{
+					recordName(outcome.folderKey, outcome.result.getName(), outcome.path == null ? UNKNOWN_PATH : outcome.path);
+				}
+			}
+			if (listener != null)
+			{
+				listener.outcomeReady(outcome);
+			}
+		}
+
+		/**
+		 * Records the path of a page under the name generated for it, keeping a list of paths only once the name is
+		 * repeated within the folder.
+		 */
+		@SuppressWarnings("unchecked")
+		private void recordName(String folderKey, String stName, String path)
+		{
+			ConcurrentMap<String, Object> names = namesByFolder.get(folderKey);
+			if (names == null)
+			{
+				ConcurrentMap<String, Object> created = new ConcurrentHashMap<String, Object>();
+				names = namesByFolder.putIfAbsent(folderKey, created);
+				if (names == null)
+				{
+					names = created;
+				}
+			}
+			while (true)
+			{
+				Object named = names.putIfAbsent(stName, path);
+				if (named == null)
+				{
+					return;
+				}
+				if (named instanceof List)
+				{
+					List<String> sharing = (List<String>)named;
+					synchronized (sharing)
+					{
+						sharing.add(path);
+					}
+					return;
+				}
+				List<String> sharing = new ArrayList<String>(2);
+				sharing.add((String)named);
+				sharing.add(path);
+				if (names.replace(stName, named, sharing))
+				{
+					return;
+				}
+				// another thread repeated the name first; add to its list instead
+			}
+		}
+
+		/**
+		 * Collects the duplicates once every outcome is complete.
+		 */
+		@SuppressWarnings("unchecked")
+		void finish()
+		{
+			Map<String, Map<String, List<String>>> duplicated = new LinkedHashMap<String, Map<String, List<String>>>();
+			for (Map.Entry<String, ConcurrentMap<String, Object>> folder : namesByFolder.entrySet())
+			{
+				for (Map.Entry<String, Object> name : folder.getValue().entrySet())
+				{
+					if (name.getValue() instanceof List)
+					{
+						Map<String, List<String>> names = duplicated.get(folder.getKey());
+						if (names == null)
+						{
+							names = new LinkedHashMap<String, List<String>>();
+							duplicated.put(folder.getKey(), names);
+						}
+						List<String> paths = (List<String>)name.getValue();
+						for (int i = 0; i < paths.size(); i++)
+						{
+							if (paths.get(i) == UNKNOWN_PATH)
+							{
+								paths.set(i, null);
+							}
+						}
+						names.put(name.getKey(), Collections.unmodifiableList(paths));
+					}
+				}
+			}
+			namesByFolder.clear();
+			this.duplicates = Collections.unmodifiableMap(duplicated);
+		}
+
+		/**
+		 * @return the outcome of every page, in iteration order; empty if outcomes were passed to a listener instead
+		 */
+		public List<Outcome> getOutcomes()
+		{
+			return outcomes == null ? Collections.<Outcome>emptyList() : Collections.unmodifiableList(outcomes);
+		}
+
+		/**
+		 * @return the number of pages named or attempted, including those the iterator failed to produce
+		 */
+		public int getPageCount()
+		{
+			return pageCount.get();
+		}
+
+		/**
+		 * @return the number of pages a name was generated for
+		 */
+		public int getSuccessCount()
+		{
+			return successCount.get();
+		}
+
+		/**
+		 * @return the number of pages no name was generated for
+		 */
+		public int getFailureCount()
+		{
+			return getPageCount() - getSuccessCount();
+		}
+
+		/**
+		 * @return the paths of the pages of a folder which generated the same name, by folder key & then name; a path
+		 * is null where the page could not be read
+		 */
+		public Map<String, Map<String, List<String>>> getDuplicates()
+		{
+			return duplicates;
+		}
+
+		/**
+		 * @return true if the run stopped before the iterator was exhausted, because it failed too many times in a row
+		 */
+		public boolean isAbandoned()
+		{
+			return abandoned;
+		}
+
+		/**
+		 * @return the last exception raised by the iterator, or null if it never failed
+		 */
+		public RuntimeException getIteratorError()
+		{
+			return iteratorError;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Report[pages=" + getPageCount() + ", named=" + getSuccessCount() + ", failed=" + getFailureCount() + ", foldersWithDuplicates=" + duplicates.size()
+				+ (abandoned ? ", abandoned after " + MAX_CONSECUTIVE_ITERATOR_FAILURES + " consecutive iterator failures, the last: " + iteratorError : "") + "]";
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.TimeZone;
+
+/**
+ * Formats dates as <code>yyyy-mm-dd</code> for use in system names, without going through <code>Calendar</code> or
+ * <code>java.util.Formatter</code>.  Digits are computed arithmetically and written straight into the output:  the
+ * {@link SlugBuilder} appends dates to the name it is building this way, allocating nothing, while the String forms
+ * serve the plug-in API & Name Templates.<br/><br/>
+ *
+ * All dates are interpreted in a single, explicit time zone:  the JVM default time zone at the time this class
+ * is loaded (the zone <code>Calendar.getInstance()</code> used previously).  Dates are treated as proleptic Gregorian.
+ * All methods are thread-safe.
+ */
+final class DateFormatter
+{
+	/** The time zone in which all dates are formatted */
+	static final TimeZone TIME_ZONE = TimeZone.getDefault();
+	/** Returned by {@link #parseMillis(String)} for a value which is not a number */
+	static final long INVALID_MILLIS = Long.MIN_VALUE;
+
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+	private static final int ISO_DATE_LENGTH = 10;
+
+	private DateFormatter()
+	{
+	}
+
+	/**
+	 * Appends the date of the given instant, formatted as <code>yyyy-mm-dd</code>, to the provided buffer.
+	 * @param out StringBuilder to append to
+	 * @param millis long instant, in milliseconds since the epoch
+	 */
+	static void appendIsoDate(StringBuilder out, long millis)
+	{
+		long epochDay = floorDiv(millis + TIME_ZONE.getOffset(millis), MILLIS_PER_DAY);
+		appendCivilDate(out, epochDay);
+	}
+
+	/**
+	 * Formats the date of the given instant as <code>yyyy-mm-dd</code>.
+	 * @param millis long instant, in milliseconds since the epoch
+	 * @return String containing the formatted date
+	 */
+	static String formatIsoDate(long millis)
+	{
+		long start = NamingStatistics.collecting() ? System.nanoTime() : 0;
+		StringBuilder out = new StringBuilder(ISO_DATE_LENGTH);
+		appendIsoDate(out, millis);
+		if (start != 0)
+		{
+			NamingStatistics.record(NamingStatistics.Stage.DATE_FORMATTING, start);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Appends a Calendar field value (<code>MM-dd-yyyy</code>), reformatted as <code>yyyy-mm-dd</code>, to the provided
+	 * buffer.  As with a lenient <code>Calendar</code>, out of range months & days roll over into the following
+	 * year or month.
+	 * @param out StringBuilder to append to
+	 * @param value String Calendar field value
+	 * @return false (and nothing is appended) if the value is not of the form <code>MM-dd-yyyy</code>
+	 */
+	static boolean appendCalendarDate(StringBuilder out, String value)
+	{
+		int length = value.length();
+		int monthEnd = value.indexOf('-');
+		int dayEnd = monthEnd < 0 ? -1 : value.indexOf('-', monthEnd + 1);
+		if (dayEnd < 0)
+		{
+			return false;
+		}
+		// anything after a further dash is ignored
+		int yearEnd = value.indexOf('-', dayEnd + 1);
+		if (yearEnd < 0)
+		{
+			yearEnd = length;
+		}
+
+		int month = parseDigits(value, 0, monthEnd);
+		int day = parseDigits(value, monthEnd + 1, dayEnd);
+		int year = parseDigits(value, dayEnd + 1, yearEnd);
+		if (month < 0 || day < 0 || year < 0)
+		{
+			return false;
+		}
+
+		// month is one-based; normalize it into the year first, then let the day roll over
+		int monthIndex = month - 1;
+		long epochDay = daysFromCivil(year + floorDiv(monthIndex, 12), (int)(monthIndex - 12 * floorDiv(monthIndex, 12)) + 1, 1) + day - 1;
+		appendCivilDate(out, epochDay);
+		return true;
+	}
+
+	/**
+	 * Reformats a Calendar field value (<code>MM-dd-yyyy</code>) as <code>yyyy-mm-dd</code>.
+	 * @param value String Calendar field value
+	 * @return String containing the formatted date, or null if the value is not of the form <code>MM-dd-yyyy</code>
+	 */
+	static String formatCalendarDate(String value)
+	{
+		long start = NamingStatistics.collecting() ? System.nanoTime() : 0;
+		StringBuilder out = new StringBuilder(ISO_DATE_LENGTH);
+		boolean formatted = appendCalendarDate(out, value);
+		if (start != 0)
+		{
+			NamingStatistics.record(NamingStatistics.Stage.DATE_FORMATTING, start);
+		}
+		return formatted ? out.toString() : null;
+	}
+
+	/**
+	 * Parses a Date/Time field value:  an instant in milliseconds since the epoch.
+	 * @param value String Date/Time field value
+	 * @return the instant, or {@link #INVALID_MILLIS} if the value is not a number
+	 */
+	static long parseMillis(String value)
+	{
+		int length = value.length();
+		int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+		if (start == length || length - start > 18)
+		{
+			return INVALID_MILLIS;
+		}
+		long millis = 0;
+		for (int i = start; i < length; i++)
+		{
+			char c = value.charAt(i);
+			if (c < '0' || c > '9')
+			{
+				return INVALID_MILLIS;
+			}
+			millis = millis * 10 + (c - '0');
+		}
+		return start == 1 ? -millis : millis;
+	}
+
+	/**
+	 * @return the non-negative number in <code>value[start, end)</code>, or -1 if that range is empty or not all digits
+	 */
+	private static int parseDigits(String value, int start, int end)
+	{
+		if (start >= end || end - start > 9)
+		{
+			return -1;
+		}
+		int number = 0;
+		for (int i = start; i < end; i++)
+		{
+			char c = value.charAt(i);
+			if (c < '0' || c > '9')
+			{
+				return -1;
+			}
+			number = number * 10 + (c - '0');
+		}
+		return number;
+	}
+
+	/**
+	 * Appends the civil date of a day count since 1970-01-01 as <code>yyyy-mm-dd</code>.  The conversion is
+	 * Howard Hinnant's <code>civil_from_days</code> algorithm.
+	 */
+	private static void appendCivilDate(StringBuilder out, long epochDay)
+	{
+		long z = epochDay + 719468;
+		long era = floorDiv(z, 146097);
+		long dayOfEra = z - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		int day = (int)(dayOfYear - (153 * mp + 2) / 5 + 1);
+		int month = (int)(mp < 10 ? mp + 3 : mp - 9);
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+		if (year >= 0 && year <= 9999)
+		{
+			int y = (int)year;
+			out.append((char)('0' + y / 1000));
+			out.append((char)('0' + y / 100 % 10));
+			out.append((char)('0' + y / 10 % 10));
+			out.append((char)('0' + y % 10));
+		}
+		else
+		{
+			out.append(year);
+		}
+		out.append('-');
+		out.append((char)('0' + month / 10));
+		out.append((char)('0' + month % 10));
+		out.append('-');
+		out.append((char)('0' + day / 10));
+		out.append((char)('0' + day % 10));
+	}
+
+	/**
+	 * @return the number of days from 1970-01-01 to the given civil date (Howard Hinnant's <code>days_from_civil</code>)
+	 */
+	private static long daysFromCivil(long year, int month, int day)
+	{
+		year -= month <= 2 ? 1 : 0;
+		long era = floorDiv(year, 400);
+		long yearOfEra = year - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static long floorDiv(long x, long y)
+	{
+		long q = x / y;
+		return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+	}
+}
@@ -0,0 +1,46 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+
+/**
+ * Name-keyed index over a Page's Dynamic Metadata fields, built once per Page so that each Dynamic Metadata
+ * identifier resolves with a single map lookup instead of a scan of every field.  Fields sharing a name are
+ * kept in their original order.
+ */
+public final class DynamicMetadataIndex
+{
+	private final Map<String, List<DynamicMetadataField>> fields;
+
+	/**
+	 * Indexes the provided Dynamic Metadata fields.
+	 * @param dynamicFields DynamicMetadataField[] array of a Page's custom fields
+	 */
+	public DynamicMetadataIndex(DynamicMetadataField[] dynamicFields)
+	{
+		fields = new HashMap<String, List<DynamicMetadataField>>(dynamicFields.length * 2);
+		for (DynamicMetadataField field : dynamicFields)
+		{
+			List<DynamicMetadataField> named = fields.get(field.getName());
+			if (named == null)
+			{
+				named = new ArrayList<DynamicMetadataField>(1);
+				fields.put(field.getName(), named);
+			}
+			named.add(field);
+		}
+	}
+
+	/**
+	 * @param stName String name of a custom field
+	 * @return the fields with the given name, in their original order, or null if there are none
+	 */
+	public List<DynamicMetadataField> getFields(String stName)
+	{
+		return fields.get(stName);
+	}
+}
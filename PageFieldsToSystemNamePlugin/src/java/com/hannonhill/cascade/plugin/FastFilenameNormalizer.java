@@ -0,0 +1,305 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hannonhill.cascade.api.util.FilenameNormalizer;
+
+/**
+ * Table-driven fast path in front of Cascade's <code>FilenameNormalizer</code>.  Values made up entirely of ASCII and
+ * Latin-1 characters are normalized with a precomputed character mapping (accented letters are folded to their base
+ * letters, e.g. <code>"Cr&egrave;me Br&ucirc;l&eacute;e"</code> becomes <code>"Creme Brulee"</code>); any value containing a character
+ * outside the table is passed to the wrapped normalizer unchanged.<br/><br/>
+ *
+ * The table is calibrated against the wrapped normalizer, once per normalizer class:  every entry is compared with
+ * the wrapped normalizer's output for that character, and entries which differ are removed so those characters take
+ * the fallback path.  A set of multi-character samples (runs of spaces & dashes, leading & trailing spaces, dropped
+ * punctuation between words, etc.) is then compared as a whole; if any of them differ, the wrapped normalizer is not
+ * character-by-character and the fast path is disabled entirely.
+ */
+final class FastFilenameNormalizer implements FilenameNormalizer
+{
+	/** The number of characters covered by the table:  ASCII and Latin-1 */
+	private static final int TABLE_SIZE = 0x100;
+	/** No characters beyond the normalizer's defaults */
+	private static final List<Character> NO_ADDITIONAL_CHARS = Collections.emptyList();
+	/** Multi-character values the table must reproduce exactly for the fast path to be used */
+	private static final String[] CALIBRATION_SAMPLES = { "Hello World", "a  b", "a - b", "a--b", "a__b", "a..b", " lead", "trail ",
+		"  ", "-a-", ".a.", "_a_", "a & b", "a&b", "(a) [b] {c}", "1,000.50",
+		"Cr\u00e8me Br\u00fbl\u00e9e", "\u00c6\u00d8\u00c5 \u00e6\u00f8\u00e5 \u00df", "Fa\u00e7ade \u00fcber na\u00efve" };
+
+	/** Calibrated normalizers, per wrapped normalizer class, whose tables are shared by later normalizers of that class */
+	private static final Map<Class<?>, FastFilenameNormalizer> CALIBRATED = new ConcurrentHashMap<Class<?>, FastFilenameNormalizer>();
+
+	private final FilenameNormalizer delegate;
+	/** Mapping of each character, or null if the character must be normalized by the delegate */
+	private final String[] table;
+	/** {@link #table}, lower-cased */
+	private final String[] slugTable;
+
+	private FastFilenameNormalizer(FilenameNormalizer delegate, String[] table)
+	{
+		this(delegate, table, lowerCase(table));
+	}
+
+	private FastFilenameNormalizer(FilenameNormalizer delegate, String[] table, String[] slugTable)
+	{
+		this.delegate = delegate;
+		this.table = table;
+		this.slugTable = slugTable;
+	}
+
+	private static String[] lowerCase(String[] table)
+	{
+		if (table == null)
+		{
+			return null;
+		}
+		String[] lower = new String[TABLE_SIZE];
+		for (int c = 0; c < TABLE_SIZE; c++)
+		{
+			lower[c] = table[c] == null ? null : table[c].toLowerCase(Locale.ROOT);
+		}
+		return lower;
+	}
+
+	/**
+	 * Returns a fast-path normalizer in front of the provided Cascade normalizer, calibrating the table against it if
+	 * this is the first normalizer of its class.
+	 * @param delegate FilenameNormalizer to fall back to
+	 * @return the fast-path normalizer
+	 */
+	static FastFilenameNormalizer forDelegate(FilenameNormalizer delegate)
+	{
+		if (delegate instanceof FastFilenameNormalizer)
+		{
+			return (FastFilenameNormalizer)delegate;
+		}
+		FastFilenameNormalizer calibrated = CALIBRATED.get(delegate.getClass());
+		if (calibrated == null)
+		{
+			calibrated = new FastFilenameNormalizer(delegate, calibrate(delegate));
+			CALIBRATED.put(delegate.getClass(), calibrated);
+		}
+		if (calibrated.delegate == delegate)
+		{
+			return calibrated;
+		}
+		return new FastFilenameNormalizer(delegate, calibrated.table, calibrated.slugTable);
+	}
+
+	/**
+	 * Returns an uncalibrated fast-path normalizer, for use outside of Cascade where no FilenameNormalizer is available.
+	 * @param fallback FilenameNormalizer used for values containing characters outside the table
+	 * @return the fast-path normalizer
+	 */
+	static FastFilenameNormalizer withDefaultTable(FilenameNormalizer fallback)
+	{
+		return new FastFilenameNormalizer(fallback, defaultTable());
+	}
+
+	/**
+	 * Builds the default character mapping:  letters, digits, space, dash, underscore & period are kept; other ASCII
+	 * punctuation is dropped; Latin-1 letters are folded to ASCII.  Control characters & Latin-1 symbols are left to
+	 * the fallback normalizer.
+	 */
+	private static String[] defaultTable()
+	{
+		String[] table = new String[TABLE_SIZE];
+		for (char c = 0x21; c < 0x7f; c++)
+		{
+			table[c] = "";
+		}
+		for (char c = 'a'; c <= 'z'; c++)
+		{
+			table[c] = String.valueOf(c);
+			table[Character.toUpperCase(c)] = String.valueOf(Character.toUpperCase(c));
+		}
+		for (char c = '0'; c <= '9'; c++)
+		{
+			table[c] = String.valueOf(c);
+		}
+		table[' '] = " ";
+		table['-'] = "-";
+		table['_'] = "_";
+		table['.'] = ".";
+
+		// Latin-1 letters, 0xC0 - 0xFF; null for the multiplication & division signs
+		String[] latin1 = { "A", "A", "A", "A", "A", "A", "AE", "C", "E", "E", "E", "E", "I", "I", "I", "I",
+			"D", "N", "O", "O", "O", "O", "O", null, "O", "U", "U", "U", "U", "Y", "TH", "ss",
+			"a", "a", "a", "a", "a", "a", "ae", "c", "e", "e", "e", "e", "i", "i", "i", "i",
+			"d", "n", "o", "o", "o", "o", "o", null, "o", "u", "u", "u", "u", "y", "th", "y" };
+		System.arraycopy(latin1, 0, table, 0xC0, latin1.length);
+		return table;
+	}
+
+	/**
+	 * @return the calibrated table, or null if the normalizer cannot be table-driven
+	 */
+	private static String[] calibrate(FilenameNormalizer delegate)
+	{
+		String[] table = defaultTable();
+		try
+		{
+			for (int c = 0; c < TABLE_SIZE; c++)
+			{
+				if (table[c] != null && !delegate.normalize("x" + (char)c + "x", NO_ADDITIONAL_CHARS).equals("x" + table[c] + "x"))
+				{
+					table[c] = null;
+				}
+			}
+			FastFilenameNormalizer candidate = new FastFilenameNormalizer(delegate, table);
+			for (String sample : CALIBRATION_SAMPLES)
+			{
+				String mapped = candidate.map(sample);
+				if (mapped != null && !mapped.equals(delegate.normalize(sample, NO_ADDITIONAL_CHARS)))
+				{
+					return null;
+				}
+			}
+			return table;
+		}
+		catch (RuntimeException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * @return the value mapped through the table, or null if it contains a character outside the table
+	 */
+	private String map(String value)
+	{
+		if (table == null)
+		{
+			return null;
+		}
+		StringBuilder out = null;
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			String mapped = c < TABLE_SIZE ? table[c] : null;
+			if (mapped == null)
+			{
+				return null;
+			}
+			// values which map onto themselves are returned as is
+			if (out == null && (mapped.length() != 1 || mapped.charAt(0) != c))
+			{
+				out = new StringBuilder(value.length() + 8);
+				out.append(value, 0, i);
+			}
+			if (out != null)
+			{
+				out.append(mapped);
+			}
+		}
+		return out == null ? value : out.toString();
+	}
+
+	/**
+	 * @return the class of the wrapped normalizer, whose output this normalizer reproduces
+	 */
+	Class<?> getDelegateClass()
+	{
+		return delegate.getClass();
+	}
+
+	/**
+	 * Tells whether the table maps part of a value onto itself as a system name fragment, e.g. the digits & dashes
+	 * of a date, so that it needs no normalizing.
+	 * @param value CharSequence text to be checked
+	 * @param start int index of the first character to check
+	 * @param end int index after the last character to check
+	 * @return true if every character is kept as it is
+	 */
+	boolean keepsAsIs(CharSequence value, int start, int end)
+	{
+		if (slugTable == null)
+		{
+			return false;
+		}
+		for (int i = start; i < end; i++)
+		{
+			char c = value.charAt(i);
+			String mapped = c < TABLE_SIZE ? slugTable[c] : null;
+			if (mapped == null || mapped.length() != 1 || mapped.charAt(0) != c)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Normalizes a value and appends it to <code>out</code> as a system name fragment, in a single pass:  trimmed, with
+	 * spaces replaced by <code>lowerSpaceToken</code> and lower-cased.
+	 * @param value String field value
+	 * @param out StringBuilder to append to
+	 * @param lowerSpaceToken String lower-cased Space Token
+	 * @return false (leaving <code>out</code> unchanged) if the value contains a character outside the table and must
+	 * be normalized by the wrapped normalizer instead
+	 */
+	boolean appendSlug(CharSequence value, StringBuilder out, String lowerSpaceToken)
+	{
+		if (slugTable == null)
+		{
+			return false;
+		}
+		int mark = out.length();
+		boolean started = false;
+		int pendingSpaces = 0;
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			String mapped = c < TABLE_SIZE ? slugTable[c] : null;
+			if (mapped == null)
+			{
+				out.setLength(mark);
+				return false;
+			}
+			for (int j = 0; j < mapped.length(); j++)
+			{
+				char m = mapped.charAt(j);
+				if (m == ' ')
+				{
+					// leading spaces are trimmed; others are only written once followed by something
+					if (started)
+					{
+						pendingSpaces++;
+					}
+				}
+				else
+				{
+					for (; pendingSpaces > 0; pendingSpaces--)
+					{
+						out.append(lowerSpaceToken);
+					}
+					out.append(m);
+					started = true;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @see com.hannonhill.cascade.api.util.FilenameNormalizer#normalize(java.lang.String, java.util.List)
+	 */
+	public String normalize(String name, List<Character> additionalAllowedChars)
+	{
+		String mapped = additionalAllowedChars == null || additionalAllowedChars.isEmpty() ? map(name) : null;
+		return mapped != null ? mapped : delegate.normalize(name, additionalAllowedChars);
+	}
+
+	/**
+	 * @see com.hannonhill.cascade.api.util.FilenameNormalizer#normalize(java.lang.String, java.lang.Character, java.util.List)
+	 */
+	public String normalize(String name, Character character, List<Character> additionalAllowedChars)
+	{
+		return delegate.normalize(name, character, additionalAllowedChars);
+	}
+}
@@ -0,0 +1,159 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Page Field identifier which has been parsed once into a typed accessor, so that resolving its value
+ * for a given page requires no further String inspection.<br/><br/>
+ *
+ * Identifiers are classified exactly as {@link StructuredDataPagePlugin} always has:  anything containing
+ * <code>"dynamic-metadata"</code> is a Dynamic Metadata field, anything containing <code>"system-data-structure"</code>
+ * is a Structured Data field and everything else is treated as a Wired Metadata field.
+ */
+public final class FieldIdentifier
+{
+	/** The kinds of Page Field which may be referenced by an identifier */
+	public enum Type
+	{
+		WIRED_METADATA,
+		DYNAMIC_METADATA,
+		STRUCTURED_DATA
+	}
+
+	private final String identifier;
+	private final Type type;
+	private final WiredMetadataField wiredField;
+	private final String dynamicFieldName;
+	private final String[] structuredDataPath;
+
+	private FieldIdentifier(String identifier, Type type, WiredMetadataField wiredField, String dynamicFieldName, String[] structuredDataPath)
+	{
+		this.identifier = identifier;
+		this.type = type;
+		this.wiredField = wiredField;
+		this.dynamicFieldName = dynamicFieldName;
+		this.structuredDataPath = structuredDataPath;
+	}
+
+	/**
+	 * Parses the provided field identifier.
+	 * @param stIdentifier String field identifier, e.g. <code>"system-data-structure/my-group/my-field"</code>
+	 * @return the parsed FieldIdentifier
+	 */
+	public static FieldIdentifier compile(String stIdentifier)
+	{
+		if (stIdentifier.contains(StructuredDataPagePlugin.CUSTOM_METADATA_TOKEN))
+		{
+			int startIndex = stIdentifier.indexOf(StructuredDataPagePlugin.CUSTOM_METADATA_TOKEN) + StructuredDataPagePlugin.CUSTOM_METADATA_TOKEN.length();
+			String stNodeName = stIdentifier.substring(startIndex);
+			if (stNodeName.startsWith("/"))
+			{
+				stNodeName = stNodeName.substring(1);
+			}
+			return new FieldIdentifier(stIdentifier, Type.DYNAMIC_METADATA, null, stNodeName, null);
+		}
+		else if (stIdentifier.contains(StructuredDataPagePlugin.STRUCTURED_DATA_TOKEN))
+		{
+			return new FieldIdentifier(stIdentifier, Type.STRUCTURED_DATA, null, null, parseStructuredDataPath(stIdentifier));
+		}
+		return new FieldIdentifier(stIdentifier, Type.WIRED_METADATA, WiredMetadataField.forIdentifier(stIdentifier), null, null);
+	}
+
+	/**
+	 * Splits a Structured Data identifier into its group names followed by the field name.  The last element
+	 * of the returned array is the field identifier; any preceding elements are the names of the groups which
+	 * must be descended through, in order, to reach it.
+	 * @param sdIdentifier String Structured Data identifier, with or without the <code>"system-data-structure"</code> token
+	 * @return String[] path of the field
+	 */
+	static String[] parseStructuredDataPath(String sdIdentifier)
+	{
+		if (sdIdentifier.contains(StructuredDataPagePlugin.STRUCTURED_DATA_TOKEN))
+		{
+			int startIndex = sdIdentifier.indexOf(StructuredDataPagePlugin.STRUCTURED_DATA_TOKEN) + StructuredDataPagePlugin.STRUCTURED_DATA_TOKEN.length();
+			sdIdentifier = sdIdentifier.substring(startIndex);
+		}
+
+		List<String> path = new ArrayList<String>();
+		while (true)
+		{
+			if (sdIdentifier.startsWith("/"))
+			{
+				sdIdentifier = sdIdentifier.substring(1);
+			}
+			if (!sdIdentifier.contains("/"))
+			{
+				path.add(sdIdentifier);
+				break;
+			}
+
+			// trailing empty segments are dropped, exactly as String.split("/") does
+			String[] nodePath = sdIdentifier.split("/");
+			if (nodePath.length == 0)
+			{
+				path.add("");
+				break;
+			}
+			path.add(nodePath[0]);
+			StringBuilder subNodes = new StringBuilder();
+			for (int i = 1; i < nodePath.length; i++)
+			{
+				if (i > 1)
+				{
+					subNodes.append('/');
+				}
+				subNodes.append(nodePath[i]);
+			}
+			sdIdentifier = subNodes.toString();
+		}
+		return path.toArray(new String[path.size()]);
+	}
+
+	/**
+	 * @return the identifier exactly as it was configured
+	 */
+	public String getIdentifier()
+	{
+		return identifier;
+	}
+
+	/**
+	 * @return the kind of Page Field this identifier refers to
+	 */
+	public Type getType()
+	{
+		return type;
+	}
+
+	/**
+	 * @return the referenced Wired Metadata field, or null if this is not a (known) Wired Metadata identifier
+	 */
+	public WiredMetadataField getWiredField()
+	{
+		return wiredField;
+	}
+
+	/**
+	 * @return the name of the referenced Dynamic Metadata field, or null if this is not a Dynamic Metadata identifier
+	 */
+	public String getDynamicFieldName()
+	{
+		return dynamicFieldName;
+	}
+
+	/**
+	 * @return the group names and field name of the referenced Structured Data field, or null if this is not a
+	 * Structured Data identifier.  The returned array must not be modified.
+	 */
+	public String[] getStructuredDataPath()
+	{
+		return structuredDataPath;
+	}
+
+	@Override
+	public String toString()
+	{
+		return identifier;
+	}
+}
@@ -0,0 +1,172 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded, concurrent LRU cache from a raw field value to its finished system name fragment (normalized, trimmed,
+ * space-tokenized & lower-cased), so that values shared by many pages, such as authors, dates or categories, are only
+ * normalized once.  A cache belongs to a single {@link NamingPlan}, and therefore to a single Space Token, and to a
+ * single class of normalizer.<br/><br/>
+ *
+ * The cache is split into independently locked segments, each evicting its least recently used entry once full.
+ * Hit, miss & eviction counts are kept to help size the cache, and while statistics are collected they are also
+ * totalled over all caches by {@link NamingStatistics}.
+ */
+public final class FragmentCache
+{
+	private static final int SEGMENT_COUNT = 16;
+
+	private final int capacity;
+	private final Segment[] segments;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param capacity int maximum number of fragments to keep; must be positive
+	 */
+	FragmentCache(int capacity)
+	{
+		this.capacity = capacity;
+		int segmentCount = Math.min(SEGMENT_COUNT, capacity);
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			// spread the capacity over the segments, the first few taking any remainder
+			segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+		}
+	}
+
+	private Segment segmentFor(String value)
+	{
+		int hash = value.hashCode();
+		hash ^= hash >>> 16;
+		return segments[(hash & Integer.MAX_VALUE) % segments.length];
+	}
+
+	/**
+	 * @param value String raw field value
+	 * @return the cached fragment for the value, or null if it is not cached
+	 */
+	String get(String value)
+	{
+		Segment segment = segmentFor(value);
+		String fragment;
+		synchronized (segment)
+		{
+			fragment = segment.get(value);
+		}
+		if (fragment == null)
+		{
+			misses.incrementAndGet();
+		}
+		else
+		{
+			hits.incrementAndGet();
+		}
+		if (NamingStatistics.collecting())
+		{
+			NamingStatistics.recordFragmentCacheLookup(fragment != null);
+		}
+		return fragment;
+	}
+
+	/**
+	 * @param value String raw field value
+	 * @param fragment String finished fragment for the value
+	 */
+	void put(String value, String fragment)
+	{
+		Segment segment = segmentFor(value);
+		synchronized (segment)
+		{
+			segment.put(value, fragment);
+		}
+	}
+
+	/**
+	 * @return the maximum number of fragments kept
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * @return the number of fragments currently cached
+	 */
+	public int getSize()
+	{
+		int size = 0;
+		for (Segment segment : segments)
+		{
+			synchronized (segment)
+			{
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of lookups which found a cached fragment
+	 */
+	public long getHitCount()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups which found no cached fragment
+	 */
+	public long getMissCount()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of fragments evicted to make room for others
+	 */
+	public long getEvictionCount()
+	{
+		return evictions.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "FragmentCache[size=" + getSize() + "/" + capacity + ", hits=" + hits.get() + ", misses=" + misses.get() + ", evictions=" + evictions.get() + "]";
+	}
+
+	/**
+	 * One independently locked, access-ordered part of the cache.
+	 */
+	private final class Segment extends LinkedHashMap<String, String>
+	{
+		private static final long serialVersionUID = 1L;
+		private final int segmentCapacity;
+
+		Segment(int segmentCapacity)
+		{
+			super(16, 0.75f, true);
+			this.segmentCapacity = segmentCapacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+		{
+			if (size() > segmentCapacity)
+			{
+				evictions.incrementAndGet();
+				if (NamingStatistics.collecting())
+				{
+					NamingStatistics.recordFragmentCacheEviction();
+				}
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A compiled Name Template:  literal text and field references, each reference optionally followed by a transform,
+ * e.g. <code>news-{start-date|year}-{title|truncate:20}</code> or <code>{dynamic-metadata/category}_{description|words:5}</code>.
+ * Supported transforms are:<br/><br/>
+ *
+ * <code>truncate:n</code> keeps the first <code>n</code> characters of the value<br/>
+ * <code>words:n</code> keeps the first <code>n</code> words of the value<br/>
+ * <code>year</code> (or <code>yyyy</code>) keeps only the year of a date value<br/><br/>
+ *
+ * Transforms apply to the field's value before it is normalized; the results are normalized exactly as Field IDs
+ * values are.  Literals are inserted as they are, lower-cased, and so may only contain letters, digits,
+ * <code>-</code>, <code>_</code> and <code>.</code>.  Unlike Field IDs, values are not joined with the Concatenation
+ * Token:  the template's literals separate them.<br/><br/>
+ *
+ * A template is parsed once into flat, parallel arrays of segments which are evaluated by a single loop, with no
+ * per-page parsing, lookups or dispatch beyond a switch on each segment's transform.
+ */
+final class NameTemplate
+{
+	/** The transform of a literal segment, or a field reference with no transform */
+	private static final int NONE = 0;
+	private static final int TRUNCATE = 1;
+	private static final int WORDS = 2;
+	private static final int YEAR = 3;
+
+	private final String template;
+	private final List<FieldIdentifier> fields;
+	/** The literal text of each segment, or null for field references */
+	private final String[] literals;
+	/** The position in {@link #getFields()} of each field reference */
+	private final int[] fieldIndexes;
+	private final int[] transforms;
+	private final int[] transformArguments;
+
+	private NameTemplate(String template, List<FieldIdentifier> fields, List<String> literals, List<int[]> references)
+	{
+		this.template = template;
+		this.fields = Collections.unmodifiableList(fields);
+		int segments = literals.size();
+		this.literals = literals.toArray(new String[segments]);
+		this.fieldIndexes = new int[segments];
+		this.transforms = new int[segments];
+		this.transformArguments = new int[segments];
+		for (int i = 0; i < segments; i++)
+		{
+			int[] reference = references.get(i);
+			if (reference != null)
+			{
+				fieldIndexes[i] = reference[0];
+				transforms[i] = reference[1];
+				transformArguments[i] = reference[2];
+			}
+		}
+	}
+
+	/**
+	 * Parses a Name Template.
+	 * @param stTemplate String template; must not be blank
+	 * @return the compiled NameTemplate
+	 * @throws IllegalArgumentException if the template is malformed
+	 */
+	static NameTemplate compile(String stTemplate)
+	{
+		List<FieldIdentifier> fields = new ArrayList<FieldIdentifier>();
+		List<String> identifiers = new ArrayList<String>();
+		List<String> literals = new ArrayList<String>();
+		List<int[]> references = new ArrayList<int[]>();
+
+		int position = 0;
+		while (position < stTemplate.length())
+		{
+			int open = stTemplate.indexOf('{', position);
+			int literalEnd = open < 0 ? stTemplate.length() : open;
+			if (literalEnd > position)
+			{
+				literals.add(compileLiteral(stTemplate, stTemplate.substring(position, literalEnd)));
+				references.add(null);
+			}
+			if (open < 0)
+			{
+				break;
+			}
+			int close = stTemplate.indexOf('}', open);
+			if (close < 0)
+			{
+				throw invalid(stTemplate, "a '{' is not closed by a '}'");
+			}
+
+			String reference = stTemplate.substring(open + 1, close);
+			int bar = reference.indexOf('|');
+			String stIdentifier = (bar < 0 ? reference : reference.substring(0, bar)).trim();
+			if (stIdentifier.equals("") || stIdentifier.indexOf('{') >= 0)
+			{
+				throw invalid(stTemplate, "'{" + reference + "}' does not name a field");
+			}
+			int fieldIndex = identifiers.indexOf(stIdentifier);
+			if (fieldIndex < 0)
+			{
+				fieldIndex = identifiers.size();
+				identifiers.add(stIdentifier);
+				fields.add(FieldIdentifier.compile(stIdentifier));
+			}
+			int[] compiled = bar < 0 ? new int[] { fieldIndex, NONE, 0 } : compileTransform(stTemplate, fieldIndex, reference.substring(bar + 1).trim());
+			literals.add(null);
+			references.add(compiled);
+			position = close + 1;
+		}
+
+		if (fields.isEmpty())
+		{
+			throw invalid(stTemplate, "it must refer to at least one field, e.g. {title}");
+		}
+		return new NameTemplate(stTemplate, fields, literals, references);
+	}
+
+	private static String compileLiteral(String stTemplate, String literal)
+	{
+		for (int i = 0; i < literal.length(); i++)
+		{
+			char c = literal.charAt(i);
+			if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.'))
+			{
+				throw invalid(stTemplate, "'" + c + "' may not be used in a system name; text outside of {} may only contain letters, digits, '-', '_' and '.'");
+			}
+		}
+		return literal.toLowerCase(Locale.ROOT);
+	}
+
+	private static int[] compileTransform(String stTemplate, int fieldIndex, String transform)
+	{
+		int colon = transform.indexOf(':');
+		String stName = (colon < 0 ? transform : transform.substring(0, colon)).trim();
+		if (stName.equals("year") || stName.equals("yyyy"))
+		{
+			if (colon >= 0)
+			{
+				throw invalid(stTemplate, "the " + stName + " transform takes no argument");
+			}
+			return new int[] { fieldIndex, YEAR, 0 };
+		}
+		int type;
+		if (stName.equals("truncate"))
+		{
+			type = TRUNCATE;
+		}
+		else if (stName.equals("words"))
+		{
+			type = WORDS;
+		}
+		else
+		{
+			throw invalid(stTemplate, "'" + transform + "' is not a known transform; use truncate:n, words:n or year");
+		}
+		int argument = 0;
+		try
+		{
+			argument = colon < 0 ? 0 : Integer.parseInt(transform.substring(colon + 1).trim());
+		}
+		catch (NumberFormatException e)
+		{
+			// reported below
+		}
+		if (argument < 1)
+		{
+			throw invalid(stTemplate, "the " + stName + " transform must be followed by a whole number of at least 1, e.g. " + stName + ":10");
+		}
+		return new int[] { fieldIndex, type, argument };
+	}
+
+	private static IllegalArgumentException invalid(String stTemplate, String stReason)
+	{
+		return new IllegalArgumentException("The Name Template '" + stTemplate + "' is invalid: " + stReason + ".");
+	}
+
+	/**
+	 * @return the template exactly as it was configured
+	 */
+	String getTemplate()
+	{
+		return template;
+	}
+
+	/**
+	 * @return the distinct fields the template refers to, in order of first reference
+	 */
+	List<FieldIdentifier> getFields()
+	{
+		return fields;
+	}
+
+	/**
+	 * Evaluates the template, appending each segment to the name.
+	 * @param name SlugBuilder to append to
+	 * @param values String[] resolved value of each of {@link #getFields()}
+	 */
+	void appendTo(SlugBuilder name, String[] values)
+	{
+		for (int i = 0; i < literals.length; i++)
+		{
+			if (literals[i] != null)
+			{
+				name.appendLiteral(literals[i]);
+				continue;
+			}
+			String value = values[fieldIndexes[i]];
+			switch (transforms[i])
+			{
+			case TRUNCATE:
+				value = truncate(value, transformArguments[i]);
+				break;
+			case WORDS:
+				value = words(value, transformArguments[i]);
+				break;
+			case YEAR:
+				value = year(value);
+				break;
+			default:
+				break;
+			}
+			name.appendValue(value);
+		}
+	}
+
+	private static String truncate(String value, int length)
+	{
+		if (value.length() <= length)
+		{
+			return value;
+		}
+		// never split a surrogate pair
+		int end = Character.isHighSurrogate(value.charAt(length - 1)) ? length - 1 : length;
+		return value.substring(0, end);
+	}
+
+	private static String words(String value, int count)
+	{
+		int words = 0;
+		boolean inWord = false;
+		for (int i = 0; i < value.length(); i++)
+		{
+			boolean space = Character.isWhitespace(value.charAt(i));
+			if (!space && !inWord && ++words > count)
+			{
+				return value.substring(0, i);
+			}
+			inWord = !space;
+		}
+		return value;
+	}
+
+	/**
+	 * @return the leading four-digit year of a date formatted as <code>yyyy-mm-dd</code>, or the value itself if it
+	 * does not start with one
+	 */
+	private static String year(String value)
+	{
+		if (value.length() < 4)
+		{
+			return value;
+		}
+		for (int i = 0; i < 4; i++)
+		{
+			if (value.charAt(i) < '0' || value.charAt(i) > '9')
+			{
+				return value;
+			}
+		}
+		return value.length() == 4 ? value : value.substring(0, 4);
+	}
+
+	@Override
+	public String toString()
+	{
+		return template;
+	}
+}
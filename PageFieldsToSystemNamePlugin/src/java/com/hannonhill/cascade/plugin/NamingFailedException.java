@@ -0,0 +1,43 @@
+package com.hannonhill.cascade.plugin;
+
+import com.cms.assetfactory.FatalPluginException;
+
+/**
+ * Raised once per submission when a system name cannot be generated or the plug-in is misconfigured; the message
+ * lists every offending field.  These are expected outcomes of invalid input rather than programming errors, so no
+ * stack trace is captured:  on bulk imports of dirty data, walking the stack would cost far more than naming the page.
+ */
+public final class NamingFailedException extends FatalPluginException
+{
+	private static final long serialVersionUID = 1L;
+
+	private final transient SystemNameResult result;
+
+	/**
+	 * @param stMessage String message for the user creating the page
+	 * @param result SystemNameResult which failed, or null if the failure was not in generating a name
+	 */
+	NamingFailedException(String stMessage, SystemNameResult result)
+	{
+		super(stMessage);
+		this.result = result;
+	}
+
+	/**
+	 * @return the failed result listing every problem, or null if the failure was not in generating a name
+	 */
+	public SystemNameResult getResult()
+	{
+		return result;
+	}
+
+	/**
+	 * Captures no stack trace.
+	 * @return this exception
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
@@ -0,0 +1,400 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+
+/**
+ * The compiled form of a PageFieldsToSystemNamePlugin configuration:  the Field IDs parameter (or the Name Template,
+ * when one is given) parsed into typed {@link FieldIdentifier} accessors, along with the effective Space and
+ * Concatenation Tokens.<br/><br/>
+ *
+ * Plans are immutable and are shared between plug-in instances through a small LRU cache keyed by the raw
+ * parameter values, so a given asset factory configuration is only ever parsed once.  Each plan also keeps the
+ * {@link StructuredDataAccessor}s for its Structured Data fields, per Data Definition, and its {@link FragmentCache}s,
+ * per normalizer.
+ */
+final class NamingPlan
+{
+	/** Position of the Field IDs parameter in a plan's raw parameter values */
+	static final int FIELD_IDS = 0;
+	/** Position of the Space Token parameter in a plan's raw parameter values */
+	static final int SPACE_TOKEN = 1;
+	/** Position of the Concatenation Token parameter in a plan's raw parameter values */
+	static final int CONCAT_TOKEN = 2;
+	/** Position of the Maximum Values parameter in a plan's raw parameter values */
+	static final int MAX_VALUES = 3;
+	/** Position of the Fragment Cache Size parameter in a plan's raw parameter values */
+	static final int FRAGMENT_CACHE_SIZE = 4;
+	/** Position of the Ensure Unique Name parameter in a plan's raw parameter values */
+	static final int UNIQUE_NAMES = 5;
+	/** Position of the Rename Only When Changed parameter in a plan's raw parameter values */
+	static final int CHANGED_ONLY = 6;
+	/** Position of the Name Template parameter in a plan's raw parameter values */
+	static final int TEMPLATE = 7;
+	/** Position of the Maximum Name Length parameter in a plan's raw parameter values */
+	static final int MAX_LENGTH = 8;
+	/** Position of the Maximum Value Length parameter in a plan's raw parameter values */
+	static final int MAX_VALUE_LENGTH = 9;
+	/** The number of raw parameter values a plan is compiled from */
+	static final int PARAMETER_COUNT = 10;
+	/** Value of {@link #getMaxLength()} meaning that names are not limited in length */
+	static final int UNLIMITED_LENGTH = Integer.MAX_VALUE;
+
+	/** Token used for spaces & concatenation when none is explicitly provided */
+	static final String DEFAULT_TOKEN = "-";
+	/** The maximum number of distinct configurations to keep compiled */
+	private static final int MAX_CACHED_PLANS = 64;
+	/** The maximum number of distinct Data Definitions to keep Structured Data accessors for, per plan */
+	private static final int MAX_CACHED_SCHEMAS = 8;
+
+	private static final Map<Key, NamingPlan> PLANS = new LinkedHashMap<Key, NamingPlan>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, NamingPlan> eldest)
+		{
+			return size() > MAX_CACHED_PLANS;
+		}
+	};
+
+	private final String[] parameters;
+	private final List<FieldIdentifier> fields;
+	private final NameTemplate template;
+	private final String spaceToken;
+	private final String concatToken;
+	private final int maxValues;
+	private final int maxValueLength;
+	private final int fragmentCacheSize;
+	/** Fragments differ from one normalizer to another, so each normalizer class has a cache of its own */
+	private final Map<Class<?>, FragmentCache> fragmentCaches = new ConcurrentHashMap<Class<?>, FragmentCache>(4);
+	private final boolean uniqueNames;
+	private final boolean changedOnly;
+	private final int maxLength;
+	private final boolean hasStructuredDataFields;
+	private final boolean hasDynamicMetadataFields;
+	private final Map<Long, StructuredDataAccessor[]> accessorsBySchema = new LinkedHashMap<Long, StructuredDataAccessor[]>(4, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, StructuredDataAccessor[]> eldest)
+		{
+			return size() > MAX_CACHED_SCHEMAS;
+		}
+	};
+
+	private NamingPlan(String[] parameters)
+	{
+		this.parameters = parameters.clone();
+
+		// a Name Template takes the place of the Field IDs, which are shorthand for the simplest templates
+		if (parameters[TEMPLATE] != null && !parameters[TEMPLATE].trim().equals(""))
+		{
+			this.template = NameTemplate.compile(parameters[TEMPLATE].trim());
+			this.fields = this.template.getFields();
+		}
+		else
+		{
+			String[] arIdentifiers = parameters[FIELD_IDS].split(",");
+			List<FieldIdentifier> compiled = new ArrayList<FieldIdentifier>(arIdentifiers.length);
+			for (String stIdentifier : arIdentifiers)
+			{
+				compiled.add(FieldIdentifier.compile(stIdentifier));
+			}
+			this.template = null;
+			this.fields = Collections.unmodifiableList(compiled);
+		}
+		boolean structured = false;
+		boolean dynamic = false;
+		for (FieldIdentifier field : this.fields)
+		{
+			structured |= field.getType() == FieldIdentifier.Type.STRUCTURED_DATA;
+			dynamic |= field.getType() == FieldIdentifier.Type.DYNAMIC_METADATA;
+		}
+		this.hasStructuredDataFields = structured;
+		this.hasDynamicMetadataFields = dynamic;
+		this.spaceToken = tokenOrDefault(parameters[SPACE_TOKEN]);
+		this.concatToken = tokenOrDefault(parameters[CONCAT_TOKEN]);
+		this.maxValues = intOrDefault(parameters[MAX_VALUES], "Maximum Values", 1, PageFieldResolver.UNLIMITED_VALUES);
+		this.maxValueLength = intOrDefault(parameters[MAX_VALUE_LENGTH], "Maximum Value Length", 1, PageFieldResolver.UNLIMITED_CHARACTERS);
+		this.fragmentCacheSize = intOrDefault(parameters[FRAGMENT_CACHE_SIZE], "Fragment Cache Size", 0, 0);
+		this.uniqueNames = booleanOrDefault(parameters[UNIQUE_NAMES], "Ensure Unique Name", false);
+		this.changedOnly = booleanOrDefault(parameters[CHANGED_ONLY], "Rename Only When Changed", false);
+		// room must be left for at least one character of the name, the Concatenation Token & the hash
+		this.maxLength = intOrDefault(parameters[MAX_LENGTH], "Maximum Name Length", this.concatToken.length() + SlugBuilder.HASH_LENGTH + 1, UNLIMITED_LENGTH);
+	}
+
+	/**
+	 * Returns the compiled plan for the given plug-in parameters, compiling & caching it if necessary.
+	 * @param parameters String[] raw parameter values, indexed by {@link #FIELD_IDS}, {@link #SPACE_TOKEN} etc.;
+	 * the Field IDs and the Name Template must not both be blank, any other value may be null
+	 * @return the NamingPlan for these parameters
+	 * @throws IllegalArgumentException if any of the parameter values is invalid
+	 */
+	static NamingPlan forParameters(String[] parameters)
+	{
+		Key key = new Key(parameters);
+		synchronized (PLANS)
+		{
+			NamingPlan plan = PLANS.get(key);
+			if (plan == null)
+			{
+				plan = new NamingPlan(parameters);
+				PLANS.put(key, plan);
+			}
+			return plan;
+		}
+	}
+
+	/**
+	 * @return true if this plan was compiled from exactly the given parameter values
+	 */
+	boolean matches(String[] parameters)
+	{
+		return Arrays.equals(this.parameters, parameters);
+	}
+
+	/**
+	 * @return the raw Field IDs parameter this plan was compiled from
+	 */
+	String getFieldIds()
+	{
+		return parameters[FIELD_IDS];
+	}
+
+	/**
+	 * @return the Name Template, or null if names are assembled from the Field IDs
+	 */
+	NameTemplate getTemplate()
+	{
+		return template;
+	}
+
+	/**
+	 * @return the configured source of names:  the Name Template if there is one, otherwise the Field IDs
+	 */
+	String getNameSource()
+	{
+		return template != null ? template.getTemplate() : parameters[FIELD_IDS];
+	}
+
+	/**
+	 * @return the compiled field accessors, in configured order (for a Name Template, in order of first reference)
+	 */
+	List<FieldIdentifier> getFields()
+	{
+		return fields;
+	}
+
+	/**
+	 * @return true if any of the fields are Structured Data fields
+	 */
+	boolean hasStructuredDataFields()
+	{
+		return hasStructuredDataFields;
+	}
+
+	/**
+	 * @return true if any of the fields are Dynamic Metadata fields
+	 */
+	boolean hasDynamicMetadataFields()
+	{
+		return hasDynamicMetadataFields;
+	}
+
+	/**
+	 * Returns the positional accessors for this plan's Structured Data fields, compiling them against the provided
+	 * Structured Data the first time a Page with its Data Definition is seen.
+	 * @param structuredData StructuredDataNode[] array of a Page's top-level nodes
+	 * @return StructuredDataAccessor[] array parallel to {@link #getFields()}; elements are null for fields which are
+	 * not Structured Data fields or which must be resolved by search
+	 */
+	StructuredDataAccessor[] getStructuredDataAccessors(StructuredDataNode[] structuredData)
+	{
+		Long key = Long.valueOf(StructuredDataAccessor.schemaKey(structuredData));
+		synchronized (accessorsBySchema)
+		{
+			StructuredDataAccessor[] accessors = accessorsBySchema.get(key);
+			if (accessors != null)
+			{
+				return accessors;
+			}
+		}
+
+		StructuredDataAccessor[] accessors = new StructuredDataAccessor[fields.size()];
+		for (int i = 0; i < accessors.length; i++)
+		{
+			FieldIdentifier field = fields.get(i);
+			if (field.getType() == FieldIdentifier.Type.STRUCTURED_DATA)
+			{
+				accessors[i] = StructuredDataAccessor.compile(structuredData, field.getStructuredDataPath());
+			}
+		}
+		synchronized (accessorsBySchema)
+		{
+			accessorsBySchema.put(key, accessors);
+		}
+		return accessors;
+	}
+
+	/**
+	 * @return the effective Space Token
+	 */
+	String getSpaceToken()
+	{
+		return spaceToken;
+	}
+
+	/**
+	 * @return the effective Concatenation Token
+	 */
+	String getConcatToken()
+	{
+		return concatToken;
+	}
+
+	/**
+	 * @return the maximum number of values of a multi-valued field to include in the name
+	 */
+	int getMaxValues()
+	{
+		return maxValues;
+	}
+
+	/**
+	 * @return the maximum number of characters of a multi-valued field's joined values to include in the name
+	 */
+	int getMaxValueLength()
+	{
+		return maxValueLength;
+	}
+
+	/**
+	 * @param normalizerClass Class of the normalizer the fragments are built by
+	 * @return the cache of finished name fragments built by that class of normalizer, or null if fragments are not cached
+	 */
+	FragmentCache getFragmentCache(Class<?> normalizerClass)
+	{
+		if (fragmentCacheSize == 0)
+		{
+			return null;
+		}
+		FragmentCache cache = fragmentCaches.get(normalizerClass);
+		if (cache == null)
+		{
+			FragmentCache created = new FragmentCache(fragmentCacheSize);
+			cache = fragmentCaches.putIfAbsent(normalizerClass, created);
+			if (cache == null)
+			{
+				cache = created;
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * @return true if names must be made unique within the page's folder
+	 */
+	boolean isUniqueNames()
+	{
+		return uniqueNames;
+	}
+
+	/**
+	 * @return true if a page whose current name is still the one its fields generate must not be renamed
+	 */
+	boolean isChangedOnly()
+	{
+		return changedOnly;
+	}
+
+	/**
+	 * @return the maximum length of a generated name, or {@link #UNLIMITED_LENGTH}
+	 */
+	int getMaxLength()
+	{
+		return maxLength;
+	}
+
+	private static boolean booleanOrDefault(String stValue, String stParameter, boolean defaultValue)
+	{
+		if (stValue == null || stValue.trim().equals(""))
+		{
+			return defaultValue;
+		}
+		String value = stValue.trim();
+		if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("yes"))
+		{
+			return true;
+		}
+		if (value.equalsIgnoreCase("false") || value.equalsIgnoreCase("no"))
+		{
+			return false;
+		}
+		throw new IllegalArgumentException("The " + stParameter + " parameter must be either 'true' or 'false', but was '" + stValue + "'.");
+	}
+
+	private static int intOrDefault(String stValue, String stParameter, int minimum, int defaultValue)
+	{
+		if (stValue == null || stValue.trim().equals(""))
+		{
+			return defaultValue;
+		}
+		try
+		{
+			int value = Integer.parseInt(stValue.trim());
+			if (value >= minimum)
+			{
+				return value;
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			// reported below
+		}
+		throw new IllegalArgumentException("The " + stParameter + " parameter must be a whole number of at least " + minimum + ", but was '" + stValue + "'.");
+	}
+
+	private static String tokenOrDefault(String stToken)
+	{
+		// if no token is explicitly provided, default to dash ("-")
+		if (stToken == null || stToken.trim().equals(""))
+		{
+			return DEFAULT_TOKEN;
+		}
+		return stToken;
+	}
+
+	/**
+	 * Cache key made up of the raw plug-in parameter values.
+	 */
+	private static final class Key
+	{
+		private final String[] parameters;
+
+		Key(String[] parameters)
+		{
+			this.parameters = parameters.clone();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof Key && Arrays.equals(parameters, ((Key)obj).parameters);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Arrays.hashCode(parameters);
+		}
+	}
+}
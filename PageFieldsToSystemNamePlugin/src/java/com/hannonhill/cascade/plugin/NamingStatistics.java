@@ -0,0 +1,399 @@
+package com.hannonhill.cascade.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Statistics of system name generation, published on the platform MBean server:  the latency of each stage of
+ * {@link SystemNameGenerator#generate} as a histogram, the number of names generated & failures, by reason and
+ * by field identifier, and the hits, misses & evictions of every {@link FragmentCache}.<br/><br/>
+ *
+ * Collection is disabled by default; it is enabled by starting the JVM with
+ * <code>-Dcom.hannonhill.cascade.plugin.statistics=true</code> or by setting the MBean's <code>Enabled</code>
+ * attribute.  While disabled, instrumented code reads a single volatile flag & skips everything else.  While enabled,
+ * each measurement is a clock read and a few atomic increments; nothing is locked.  Latencies are counted in
+ * power-of-two buckets of nanoseconds, so reported percentiles are upper bounds within a factor of two.
+ */
+public final class NamingStatistics implements NamingStatisticsMXBean
+{
+	/** The name the statistics are registered under */
+	public static final String OBJECT_NAME = "com.hannonhill.cascade.plugin:type=NamingStatistics";
+	/** The system property which enables collection at start-up */
+	public static final String ENABLED_PROPERTY = "com.hannonhill.cascade.plugin.statistics";
+
+	/** The measured stages of name generation */
+	enum Stage
+	{
+		LOOKUP, DATE_FORMATTING, NORMALIZATION, ASSEMBLY
+	}
+
+	/** The number of distinct identifiers failures are counted for; any others are counted together */
+	private static final int MAX_IDENTIFIERS = 256;
+	private static final String OTHER_IDENTIFIERS = "(other)";
+
+	private static final NamingStatistics INSTANCE = new NamingStatistics();
+
+	static
+	{
+		INSTANCE.register();
+	}
+
+	private volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+	private final Histogram[] stages = new Histogram[Stage.values().length];
+	private final AtomicLong successes = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLongArray failuresByReason = new AtomicLongArray(SystemNameResult.Failure.values().length);
+	private final Map<String, AtomicLong> failuresByIdentifier = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong fragmentCacheHits = new AtomicLong();
+	private final AtomicLong fragmentCacheMisses = new AtomicLong();
+	private final AtomicLong fragmentCacheEvictions = new AtomicLong();
+
+	private NamingStatistics()
+	{
+		for (int i = 0; i < stages.length; i++)
+		{
+			stages[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * Registers the statistics on the platform MBean server, replacing any registered by an earlier copy of this
+	 * class (e.g. before the plug-in was redeployed).  Failure to register only means the statistics are not
+	 * published.
+	 */
+	private void register()
+	{
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name))
+			{
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+		}
+		catch (JMException e)
+		{
+			// not published
+		}
+		catch (SecurityException e)
+		{
+			// not published
+		}
+	}
+
+	/**
+	 * @return the statistics of this JVM
+	 */
+	public static NamingStatistics getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * @return true if statistics are being collected; instrumented code checks this before reading the clock
+	 */
+	static boolean collecting()
+	{
+		return INSTANCE.enabled;
+	}
+
+	/**
+	 * Records the latency of a stage which started at the given time.
+	 * @param stage Stage measured
+	 * @param startNanos long <code>System.nanoTime()</code> at the start of the stage
+	 */
+	static void record(Stage stage, long startNanos)
+	{
+		INSTANCE.stages[stage.ordinal()].record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Records the outcome of generating a name; each problem of a failed result is counted by its reason & field.
+	 * @param result SystemNameResult generated
+	 */
+	static void record(SystemNameResult result)
+	{
+		if (result.isSuccess())
+		{
+			INSTANCE.successes.incrementAndGet();
+			return;
+		}
+		INSTANCE.failures.incrementAndGet();
+		List<SystemNameResult.Problem> problems = result.getProblems();
+		for (int i = 0; i < problems.size(); i++)
+		{
+			SystemNameResult.Problem problem = problems.get(i);
+			INSTANCE.failuresByReason.incrementAndGet(problem.getFailure().ordinal());
+			INSTANCE.countIdentifier(problem.getIdentifier());
+		}
+	}
+
+	/**
+	 * Records a lookup in a fragment cache.
+	 * @param hit boolean true if a cached fragment was found
+	 */
+	static void recordFragmentCacheLookup(boolean hit)
+	{
+		(hit ? INSTANCE.fragmentCacheHits : INSTANCE.fragmentCacheMisses).incrementAndGet();
+	}
+
+	/**
+	 * Records the eviction of a fragment from a fragment cache.
+	 */
+	static void recordFragmentCacheEviction()
+	{
+		INSTANCE.fragmentCacheEvictions.incrementAndGet();
+	}
+
+	private void countIdentifier(String stIdentifier)
+	{
+		AtomicLong count = failuresByIdentifier.get(stIdentifier);
+		if (count == null)
+		{
+			String key = failuresByIdentifier.size() < MAX_IDENTIFIERS ? stIdentifier : OTHER_IDENTIFIERS;
+			synchronized (failuresByIdentifier)
+			{
+				count = failuresByIdentifier.get(key);
+				if (count == null)
+				{
+					count = new AtomicLong();
+					failuresByIdentifier.put(key, count);
+				}
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	public long getSuccessCount()
+	{
+		return successes.get();
+	}
+
+	public long getFailureCount()
+	{
+		return failures.get();
+	}
+
+	public Map<String, Long> getFailuresByReason()
+	{
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (SystemNameResult.Failure failure : SystemNameResult.Failure.values())
+		{
+			counts.put(failure.name(), Long.valueOf(failuresByReason.get(failure.ordinal())));
+		}
+		return counts;
+	}
+
+	public Map<String, Long> getFailuresByIdentifier()
+	{
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : failuresByIdentifier.entrySet())
+		{
+			counts.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+		}
+		return counts;
+	}
+
+	public long getFragmentCacheHitCount()
+	{
+		return fragmentCacheHits.get();
+	}
+
+	public long getFragmentCacheMissCount()
+	{
+		return fragmentCacheMisses.get();
+	}
+
+	public long getFragmentCacheEvictionCount()
+	{
+		return fragmentCacheEvictions.get();
+	}
+
+	public StageSnapshot getLookup()
+	{
+		return stages[Stage.LOOKUP.ordinal()].snapshot();
+	}
+
+	public StageSnapshot getDateFormatting()
+	{
+		return stages[Stage.DATE_FORMATTING.ordinal()].snapshot();
+	}
+
+	public StageSnapshot getNormalization()
+	{
+		return stages[Stage.NORMALIZATION.ordinal()].snapshot();
+	}
+
+	public StageSnapshot getAssembly()
+	{
+		return stages[Stage.ASSEMBLY.ordinal()].snapshot();
+	}
+
+	public void reset()
+	{
+		for (Histogram stage : stages)
+		{
+			stage.reset();
+		}
+		successes.set(0);
+		failures.set(0);
+		for (int i = 0; i < failuresByReason.length(); i++)
+		{
+			failuresByReason.set(i, 0);
+		}
+		failuresByIdentifier.clear();
+		fragmentCacheHits.set(0);
+		fragmentCacheMisses.set(0);
+		fragmentCacheEvictions.set(0);
+	}
+
+	/**
+	 * Lock-free latency histogram:  bucket <code>i</code> counts latencies of less than <code>2^i</code> nanoseconds
+	 * (and at least <code>2^(i-1)</code>).
+	 */
+	private static final class Histogram
+	{
+		private static final int BUCKETS = 64;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong totalNanos = new AtomicLong();
+
+		void record(long nanos)
+		{
+			long latency = nanos < 0 ? 0 : nanos;
+			buckets.incrementAndGet(Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(latency)));
+			totalNanos.addAndGet(latency);
+		}
+
+		void reset()
+		{
+			for (int i = 0; i < BUCKETS; i++)
+			{
+				buckets.set(i, 0);
+			}
+			totalNanos.set(0);
+		}
+
+		StageSnapshot snapshot()
+		{
+			long[] counts = new long[BUCKETS];
+			long count = 0;
+			for (int i = 0; i < BUCKETS; i++)
+			{
+				counts[i] = buckets.get(i);
+				count += counts[i];
+			}
+			return new StageSnapshot(count, totalNanos.get(), counts);
+		}
+	}
+
+	/**
+	 * The latencies of one stage at a point in time.
+	 */
+	public static final class StageSnapshot
+	{
+		private final long count;
+		private final long totalNanos;
+		private final long[] histogram;
+
+		StageSnapshot(long count, long totalNanos, long[] histogram)
+		{
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.histogram = histogram;
+		}
+
+		/**
+		 * @return the number of measurements
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @return the sum of all measured latencies, in nanoseconds
+		 */
+		public long getTotalNanos()
+		{
+			return totalNanos;
+		}
+
+		/**
+		 * @return the mean latency, in nanoseconds
+		 */
+		public long getMeanNanos()
+		{
+			return count == 0 ? 0 : totalNanos / count;
+		}
+
+		/**
+		 * @return the median latency (upper bound), in nanoseconds
+		 */
+		public long getP50Nanos()
+		{
+			return percentile(0.50);
+		}
+
+		/**
+		 * @return the 90th percentile latency (upper bound), in nanoseconds
+		 */
+		public long getP90Nanos()
+		{
+			return percentile(0.90);
+		}
+
+		/**
+		 * @return the 99th percentile latency (upper bound), in nanoseconds
+		 */
+		public long getP99Nanos()
+		{
+			return percentile(0.99);
+		}
+
+		/**
+		 * @return the number of measurements per bucket; bucket <code>i</code> counts latencies of less than
+		 * <code>2^i</code> nanoseconds
+		 */
+		public long[] getHistogram()
+		{
+			return histogram.clone();
+		}
+
+		private long percentile(double fraction)
+		{
+			long rank = (long)Math.ceil(count * fraction);
+			long seen = 0;
+			for (int i = 0; i < histogram.length; i++)
+			{
+				seen += histogram[i];
+				if (seen >= rank && seen > 0)
+				{
+					return i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+				}
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link NamingStatistics}, registered as
+ * <code>com.hannonhill.cascade.plugin:type=NamingStatistics</code>.
+ */
+public interface NamingStatisticsMXBean
+{
+	/**
+	 * @return true if statistics are being collected
+	 */
+	boolean isEnabled();
+
+	/**
+	 * @param enabled boolean true to start collecting statistics, false to stop
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * @return the number of names generated
+	 */
+	long getSuccessCount();
+
+	/**
+	 * @return the number of pages no name could be generated for
+	 */
+	long getFailureCount();
+
+	/**
+	 * @return the number of problems, by reason; a page may fail for several
+	 */
+	Map<String, Long> getFailuresByReason();
+
+	/**
+	 * @return the number of problems, by field identifier
+	 */
+	Map<String, Long> getFailuresByIdentifier();
+
+	/**
+	 * @return the number of fragment cache lookups which found a cached fragment, over all Fragment Caches
+	 */
+	long getFragmentCacheHitCount();
+
+	/**
+	 * @return the number of fragment cache lookups which found no cached fragment, over all Fragment Caches
+	 */
+	long getFragmentCacheMissCount();
+
+	/**
+	 * @return the number of fragments evicted to make room for others, over all Fragment Caches
+	 */
+	long getFragmentCacheEvictionCount();
+
+	/**
+	 * @return latencies of resolving a single field's value, date formatting included
+	 */
+	NamingStatistics.StageSnapshot getLookup();
+
+	/**
+	 * @return latencies of formatting a single date
+	 */
+	NamingStatistics.StageSnapshot getDateFormatting();
+
+	/**
+	 * @return latencies of normalizing & appending a single field's value
+	 */
+	NamingStatistics.StageSnapshot getNormalization();
+
+	/**
+	 * @return latencies of generating a whole name, all other stages included
+	 */
+	NamingStatistics.StageSnapshot getAssembly();
+
+	/**
+	 * Clears all statistics.
+	 */
+	void reset();
+}
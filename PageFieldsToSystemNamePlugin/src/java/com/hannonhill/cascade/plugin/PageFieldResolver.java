@@ -0,0 +1,438 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.List;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.Metadata;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.asset.common.TextNodeOptions;
+
+/**
+ * Reads Page Field values (Wired Metadata, Dynamic Metadata & Structured Data) for use in system names.  A resolver
+ * holds no state, so a single instance may be shared by any number of threads; it does not depend on
+ * <code>BaseAssetFactoryPlugin</code> and may be used outside of Cascade.
+ *
+ * @see StructuredDataPagePlugin
+ */
+public class PageFieldResolver
+{
+	/** Value limit meaning that all values of a multi-valued field are included */
+	public static final int UNLIMITED_VALUES = Integer.MAX_VALUE;
+	/** Length limit meaning that the joined values of a multi-valued field are included in full */
+	public static final int UNLIMITED_CHARACTERS = Integer.MAX_VALUE;
+	/** Returned in place of a date's value once the date has been appended straight to the name being built */
+	static final CharSequence DATE_APPENDED = new String("(date appended)");
+
+	/**
+	 * Returns the value of the given wired metadata field (if any) from the provided Metadata.
+	 * @param metadata Metadata object to be searched
+	 * @param field WiredMetadataField to read; may be null for an unknown field
+	 * @return String containing the value of the specified wired metadata field
+	 */
+	public String searchWiredMetadata(Metadata metadata, WiredMetadataField field)
+	{
+		if (field == null)
+		{
+			return null;
+		}
+		return field.read(metadata);
+	}
+
+	/**
+	 * Searches the provided array of dynamic metadata fields for the given custom field name, including all of a
+	 * multi-valued field's values.
+	 * @param dynamicFields DynamicMetadataField[] array containing all custom fields to be searched
+	 * @param stName String custom field name
+	 * @return String containing the value of the specified custom field
+	 */
+	public String searchDynamicMetadata(DynamicMetadataField[] dynamicFields, String stName)
+	{
+		for (int i = 0; i < dynamicFields.length; i++)
+		{
+			if (dynamicFields[i].getName().equals(stName))
+			{
+				String value = this.joinDynamicMetadataValues(dynamicFields[i], UNLIMITED_VALUES);
+				if (value != null)
+				{
+					return value;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Looks up the given custom field name in an index of a Page's dynamic metadata fields.
+	 * @param index DynamicMetadataIndex of the Page's custom fields
+	 * @param stName String custom field name
+	 * @param maxValues int maximum number of values of a multi-valued field to include
+	 * @return String containing the value of the specified custom field
+	 */
+	public String searchDynamicMetadata(DynamicMetadataIndex index, String stName, int maxValues)
+	{
+		return this.searchDynamicMetadata(index, stName, maxValues, UNLIMITED_CHARACTERS);
+	}
+
+	/**
+	 * Looks up the given custom field name in an index of a Page's dynamic metadata fields.
+	 * @param index DynamicMetadataIndex of the Page's custom fields
+	 * @param stName String custom field name
+	 * @param maxValues int maximum number of values of a multi-valued field to include
+	 * @param maxChars int maximum number of characters of a multi-valued field's joined values to include
+	 * @return String containing the value of the specified custom field
+	 */
+	public String searchDynamicMetadata(DynamicMetadataIndex index, String stName, int maxValues, int maxChars)
+	{
+		List<DynamicMetadataField> named = index.getFields(stName);
+		if (named == null)
+		{
+			return null;
+		}
+		for (int i = 0; i < named.size(); i++)
+		{
+			String value = this.joinDynamicMetadataValues(named.get(i), maxValues, maxChars);
+			if (value != null)
+			{
+				return value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Joins the values of a (possibly multi-valued) dynamic metadata field with spaces.  The field's values are
+	 * fetched once, and reading stops as soon as <code>maxValues</code> values have been included.
+	 * @param field DynamicMetadataField to be read
+	 * @param maxValues int maximum number of values to include
+	 * @return String containing the joined values, or null if the field has none
+	 */
+	public String joinDynamicMetadataValues(DynamicMetadataField field, int maxValues)
+	{
+		return this.joinDynamicMetadataValues(field, maxValues, UNLIMITED_CHARACTERS);
+	}
+
+	/**
+	 * Joins the values of a (possibly multi-valued) dynamic metadata field with spaces, stopping as soon as
+	 * <code>maxValues</code> values or <code>maxChars</code> characters have been included.
+	 * @param field DynamicMetadataField to be read
+	 * @param maxValues int maximum number of values to include
+	 * @param maxChars int maximum number of characters to include
+	 * @return String containing the joined values, or null if the field has none
+	 */
+	public String joinDynamicMetadataValues(DynamicMetadataField field, int maxValues, int maxChars)
+	{
+		String[] values = field.getValues();
+		if (values == null)
+		{
+			return null;
+		}
+
+		StringBuilder multiVal = new StringBuilder();
+		int count = 0;
+		for (int j = 0; j < values.length && count < maxValues && multiVal.length() < maxChars; j++)
+		{
+			if (values[j] != null)
+			{
+				appendTrimmed(values[j], multiVal);
+				count++;
+				if (j < (values.length - 1))
+				{
+					multiVal.append(' ');
+				}
+			}
+		}
+		cut(multiVal, 0, maxChars);
+
+		if (multiVal.length() > 0)
+		{
+			return multiVal.toString();
+		}
+		return null;
+	}
+
+	/**
+	 * Searches <code>structuredData</code> for the field identified by a pre-split Structured Data path, starting at
+	 * <code>depth</code>.  Every element of the path but the last must name a group directly beneath the previous one;
+	 * the last element names a text field anywhere beneath the final group.
+	 * @param structuredData StructuredDataNode[] array of nodes to be searched
+	 * @param path String[] path as returned by {@link FieldIdentifier#getStructuredDataPath()}
+	 * @param depth int index of the path element to be matched against <code>structuredData</code>
+	 * @return String containing the value of the specified field
+	 */
+	public String searchStructuredData(StructuredDataNode[] structuredData, String[] path, int depth)
+	{
+		if (depth < path.length - 1)
+		{
+			String curNode = path[depth];
+			for (StructuredDataNode node : structuredData)
+			{
+				if (node.isGroup() && curNode.equals(node.getIdentifier()))
+				{
+					String value = searchStructuredData(node.getGroup(), path, depth + 1);
+					if (value != null)
+					{
+						return value;
+					}
+				}
+			}
+		}
+		else
+		{
+			String sdIdentifier = path[depth];
+			for (StructuredDataNode node : structuredData)
+			{
+				if (node.isGroup())
+				{
+					String value = searchStructuredData(node.getGroup(), path, depth);
+					if (value != null)
+					{
+						return value;
+					}
+				}
+				else if (sdIdentifier.equals(node.getIdentifier()) && node.isText())
+				{
+					String value = readTextNode(node);
+					if (value != null)
+					{
+						return value;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Resolves the field identified by a pre-split Structured Data path against an index of a Page's Structured Data.
+	 * Returns the same value as {@link #searchStructuredData(StructuredDataNode[], String[], int)}, but additionally
+	 * accepts one-based occurrence indexes on path segments, e.g. <code>my-group[2]/my-field</code>.
+	 * @param index StructuredDataIndex of the Page's Structured Data
+	 * @param path String[] path as returned by {@link FieldIdentifier#getStructuredDataPath()}
+	 * @return String containing the value of the specified field
+	 */
+	public String searchStructuredData(StructuredDataIndex index, String[] path)
+	{
+		CharSequence value = searchStructuredData(index.getRoot(), path, 0, null, UNLIMITED_VALUES, UNLIMITED_CHARACTERS, null);
+		return value == null ? null : value.toString();
+	}
+
+	/**
+	 * Resolves the field identified by a pre-split Structured Data path against an index of a Page's Structured Data,
+	 * streaming the selected values of a check-box or multi-select field into <code>joined</code>.
+	 * @param joined StringBuilder to join multiple selected values in, or null to create one as needed
+	 * @see #searchStructuredData(StructuredDataIndex, String[])
+	 * @see #readTextNode(StructuredDataNode, StringBuilder, int, int, SlugBuilder)
+	 */
+	CharSequence searchStructuredData(StructuredDataIndex index, String[] path, StringBuilder joined, int maxValues, int maxChars, SlugBuilder name)
+	{
+		return searchStructuredData(index.getRoot(), path, 0, joined, maxValues, maxChars, name);
+	}
+
+	private CharSequence searchStructuredData(StructuredDataIndex.Scope scope, String[] path, int depth, StringBuilder joined, int maxValues, int maxChars, SlugBuilder name)
+	{
+		String segment = path[depth];
+		int occurrence = StructuredDataIndex.getOccurrence(segment);
+		String sdIdentifier = StructuredDataIndex.getIdentifier(segment);
+		if (depth < path.length - 1)
+		{
+			List<StructuredDataIndex.Scope> groups = scope.getGroups(sdIdentifier);
+			if (groups == null)
+			{
+				return null;
+			}
+			if (occurrence > 0)
+			{
+				return occurrence <= groups.size() ? searchStructuredData(groups.get(occurrence - 1), path, depth + 1, joined, maxValues, maxChars, name) : null;
+			}
+			for (int i = 0; i < groups.size(); i++)
+			{
+				CharSequence value = searchStructuredData(groups.get(i), path, depth + 1, joined, maxValues, maxChars, name);
+				if (value != null)
+				{
+					return value;
+				}
+			}
+		}
+		else
+		{
+			List<StructuredDataNode> fields = scope.getFields(sdIdentifier);
+			if (fields == null)
+			{
+				return null;
+			}
+			if (occurrence > 0)
+			{
+				return occurrence <= fields.size() ? readTextNode(fields.get(occurrence - 1), joined, maxValues, maxChars, name) : null;
+			}
+			for (int i = 0; i < fields.size(); i++)
+			{
+				CharSequence value = readTextNode(fields.get(i), joined, maxValues, maxChars, name);
+				if (value != null)
+				{
+					return value;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the value of a Structured Data text node, formatted for use in a system name.
+	 * @param node StructuredDataNode text node
+	 * @return String containing the node's value, or null if it has none or is of an unsupported type
+	 */
+	public String readTextNode(StructuredDataNode node)
+	{
+		CharSequence value = readTextNode(node, null, UNLIMITED_VALUES, UNLIMITED_CHARACTERS, null);
+		return value == null ? null : value.toString();
+	}
+
+	/**
+	 * Returns the value of a Structured Data text node, formatted for use in a system name.  Unsupported nodes are
+	 * rejected before any of their values are fetched.  The selected values of check-box & multi-select nodes are
+	 * joined directly into <code>joined</code>, reading no further than the value & character limits, and when a name
+	 * is given, dates are appended straight to it.
+	 * @param node StructuredDataNode text node
+	 * @param joined StringBuilder to join multiple selected values in, replacing its contents, or null to create one
+	 * as needed
+	 * @param maxValues int maximum number of selected values to include
+	 * @param maxChars int maximum number of characters of the joined values to include
+	 * @param name SlugBuilder to append a date to, or null to return it formatted
+	 * @return the node's value:  a String, for check-box & multi-select nodes the StringBuilder the values were
+	 * joined in, or {@link #DATE_APPENDED} for a date appended to <code>name</code>; null if it has none or is of an
+	 * unsupported type
+	 */
+	CharSequence readTextNode(StructuredDataNode node, StringBuilder joined, int maxValues, int maxChars, SlugBuilder name)
+	{
+		// WYSIWYG fields (and anything which is not a text field) cannot be used in a name
+		if (!node.isText())
+		{
+			return null;
+		}
+		TextNodeOptions options = node.getTextNodeOptions();
+		if (options.isWysiwyg())
+		{
+			return null;
+		}
+
+		String[] nodeValues = node.getTextValues();
+		if (nodeValues.length == 0 || nodeValues[0] == null || isBlank(nodeValues[0]))
+		{
+			return null;
+		}
+		String nodeValue = nodeValues[0];
+
+		// for date/time & calendar, return formatted date string, i.e. yyyy-mm-dd
+		if (options.isDatetime())
+		{
+			long millis = DateFormatter.parseMillis(nodeValue);
+			if (millis == DateFormatter.INVALID_MILLIS)
+			{
+				return null;
+			}
+			if (name != null)
+			{
+				name.appendIsoDate(millis);
+				return DATE_APPENDED;
+			}
+			return DateFormatter.formatIsoDate(millis);
+		}
+		// calendar values are stored as MM-dd-yyyy
+		else if (options.isCalendar())
+		{
+			if (name != null)
+			{
+				return name.appendCalendarDate(nodeValue) ? DATE_APPENDED : null;
+			}
+			return DateFormatter.formatCalendarDate(nodeValue);
+		}
+		// for check-box & multi-select (where multiple values are allowed), concatenate the selected values
+		else if (options.isCheckbox() || options.isMultiselect())
+		{
+			if (joined == null)
+			{
+				joined = new StringBuilder();
+			}
+			joined.setLength(0);
+			return this.appendSelectedValues(nodeValues, joined, maxValues, maxChars) ? joined : null;
+		}
+		return nodeValue;
+	}
+
+	/**
+	 * Appends the selected values of a check-box or multi-select node, trimmed & separated by spaces, stopping as
+	 * soon as <code>maxValues</code> values or <code>maxChars</code> characters have been appended.
+	 * @param values String[] selected values; blank values are skipped
+	 * @param out StringBuilder to append to
+	 * @param maxValues int maximum number of values to append
+	 * @param maxChars int maximum number of characters to append
+	 * @return true if anything was appended
+	 */
+	boolean appendSelectedValues(String[] values, StringBuilder out, int maxValues, int maxChars)
+	{
+		int start = out.length();
+		int limit = maxChars > Integer.MAX_VALUE - start ? Integer.MAX_VALUE : start + maxChars;
+		int count = 0;
+		for (int i = 0; i < values.length && count < maxValues && out.length() < limit; i++)
+		{
+			if (values[i] != null && !isBlank(values[i]))
+			{
+				appendTrimmed(values[i], out);
+				count++;
+				if (i < (values.length - 1))
+				{
+					out.append(' ');
+				}
+			}
+		}
+		cut(out, start, maxChars);
+		return out.length() > start;
+	}
+
+	/**
+	 * @return true if the value is empty or consists only of the characters <code>String.trim()</code> removes
+	 */
+	static boolean isBlank(CharSequence value)
+	{
+		for (int i = 0; i < value.length(); i++)
+		{
+			if (value.charAt(i) > ' ')
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the value exactly as <code>value.trim()</code>, without creating the trimmed String.
+	 */
+	private static void appendTrimmed(String value, StringBuilder out)
+	{
+		int start = 0;
+		int end = value.length();
+		while (start < end && value.charAt(start) <= ' ')
+		{
+			start++;
+		}
+		while (end > start && value.charAt(end - 1) <= ' ')
+		{
+			end--;
+		}
+		out.append(value, start, end);
+	}
+
+	/**
+	 * Shortens what was appended from <code>start</code> to at most <code>maxChars</code> characters, without
+	 * splitting a surrogate pair.
+	 */
+	private static void cut(StringBuilder out, int start, int maxChars)
+	{
+		if (out.length() - start <= maxChars)
+		{
+			return;
+		}
+		int end = start + maxChars;
+		out.setLength(Character.isHighSurrogate(out.charAt(end - 1)) ? end - 1 : end);
+	}
+}
@@ -1,16 +1,16 @@
 package com.hannonhill.cascade.plugin;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.cms.assetfactory.PluginException;
-import com.cms.assetfactory.FatalPluginException;
 import com.hannonhill.cascade.api.asset.admin.AssetFactory;
 import com.hannonhill.cascade.api.asset.home.FolderContainedAsset;
 import com.hannonhill.cascade.api.asset.home.Page;
 import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
 import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.PathIdentifier;
 
 /**
  * Plug-in which accepts a comma-delimited list of Page Field identifiers and constructs a 
@@ -23,7 +23,13 @@ import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
  * 
  * Dynamic Metadata fields:  [dynamic-metadata/field-name]  e.g. dynamic-metadata/my-custom-field1,dynamic-metadata/my-custom-field2<br/><br/>
  * 
- * Structured Data (Data Definition) fields:  [system-data-structure/{group-name}/field-name]  e.g. system-data-structure/my-group/my-field,system-data-structure/my-ungrouped-field
+ * Structured Data (Data Definition) fields:  [system-data-structure/{group-name}/field-name]  e.g. system-data-structure/my-group/my-field,system-data-structure/my-ungrouped-field<br/><br/>
+ * 
+ * A specific instance of a repeated group or field may be addressed with a one-based index, e.g. system-data-structure/my-group[2]/my-field<br/><br/>
+ * 
+ * Alternatively, a Name Template combines field identifiers in braces with literal text & per-field transforms, e.g. news-{start-date|year}-{title|truncate:20}; see {@link NameTemplate}.<br/><br/>
+ * 
+ * Names are generated by a {@link SystemNameGenerator}; this class adapts it to the asset factory plug-in lifecycle.
  * 
  * @author Brent Arrington
  */
@@ -45,6 +51,39 @@ public final class PageFieldsToSystemNamePlugin extends StructuredDataPagePlugin
     private static final String CONCATTOKEN_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.concattoken.name";
     /** The resource bundle key for the description of the Space Token parameter */
     private static final String CONCATTOKEN_PARAM_DESC_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.concattoken.description";
+    /** The resource bundle key for the name of the Maximum Values parameter */
+    private static final String MAXVALUES_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxvalues.name";
+    /** The resource bundle key for the description of the Maximum Values parameter */
+    private static final String MAXVALUES_PARAM_DESC_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxvalues.description";
+    /** The resource bundle key for the name of the Fragment Cache Size parameter */
+    private static final String FRAGMENTCACHE_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.fragmentcache.name";
+    /** The resource bundle key for the description of the Fragment Cache Size parameter */
+    private static final String FRAGMENTCACHE_PARAM_DESC_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.fragmentcache.description";
+    /** The resource bundle key for the name of the Ensure Unique Name parameter */
+    private static final String UNIQUE_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.unique.name";
+    /** The resource bundle key for the description of the Ensure Unique Name parameter */
+    private static final String UNIQUE_PARAM_DESC_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.unique.description";
+    /** The resource bundle key for the name of the Rename Only When Changed parameter */
+    private static final String CHANGEDONLY_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.changedonly.name";
+    /** The resource bundle key for the description of the Rename Only When Changed parameter */
+    private static final String CHANGEDONLY_PARAM_DESC_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.changedonly.description";
+    /** The resource bundle key for the name of the Name Template parameter */
+    private static final String TEMPLATE_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.template.name";
+    /** The resource bundle key for the description of the Name Template parameter */
+    private static final String TEMPLATE_PARAM_DESC_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.template.description";
+    /** The resource bundle key for the name of the Maximum Name Length parameter */
+    private static final String MAXLENGTH_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxlength.name";
+    /** The resource bundle key for the description of the Maximum Name Length parameter */
+    private static final String MAXLENGTH_PARAM_DESC_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxlength.description";
+    /** The resource bundle key for the name of the Maximum Value Length parameter */
+    private static final String MAXVALUELENGTH_PARAM_NAME_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxvaluelength.name";
+    /** The resource bundle key for the description of the Maximum Value Length parameter */
+    private static final String MAXVALUELENGTH_PARAM_DESC_KEY = "plugin.assetfactory.pagefieldstosystemname.parameter.maxvaluelength.description";
+    /** The parameters a naming plan is compiled from, in the order expected by {@link NamingPlan#forParameters(String[])} */
+    private static final String[] PLAN_PARAM_NAME_KEYS = { FIELDIDS_PARAM_NAME_KEY, SPACETOKEN_PARAM_NAME_KEY, CONCATTOKEN_PARAM_NAME_KEY, MAXVALUES_PARAM_NAME_KEY, FRAGMENTCACHE_PARAM_NAME_KEY, UNIQUE_PARAM_NAME_KEY, CHANGEDONLY_PARAM_NAME_KEY, TEMPLATE_PARAM_NAME_KEY, MAXLENGTH_PARAM_NAME_KEY, MAXVALUELENGTH_PARAM_NAME_KEY };
+
+    /** The compiled form of the most recently used parameters */
+    private volatile NamingPlan namingPlan;
 
     /**
      * @see com.cms.assetfactory.BaseAssetFactoryPlugin#doPluginActionPost(com.hannonhill.cascade.api.asset.admin.AssetFactory, com.hannonhill.cascade.api.asset.home.FolderContainedAsset)
@@ -59,113 +98,52 @@ public final class PageFieldsToSystemNamePlugin extends StructuredDataPagePlugin
     	// throw exception & forbid asset creation for invalid types
     	if (!this.isValidType(asset))
     	{
-    		this.setAllowCreation(false, "PageFieldsToSystemNamePlugin: This plug-in may only be applied to Page asset factories.");
-    		throw new FatalPluginException("PageFieldsToSystemNamePlugin: This plug-in may only be applied to Page asset factories.");
+    		throw this.forbidCreation("This plug-in may only be applied to Page asset factories.", null);
     	}
     	
     	Page page = (Page)asset;
     	
-    	String stIdentifiers = getParameter(FIELDIDS_PARAM_NAME_KEY);
     	// if no fields are specified for auto-naming values, throw exception & forbid asset creation
-    	if (stIdentifiers == null || stIdentifiers.trim().equals(""))
+    	if (!this.hasNameSource())
     	{
-    		this.setAllowCreation(false, "PageFieldsToSystemNamePlugin: Field IDs are required for this plugin.");
-    		throw new FatalPluginException("PageFieldsToSystemNamePlugin: Field IDs are required for this plugin.");
+    		throw this.forbidCreation("Field IDs or a Name Template are required for this plugin.", null);
     	}
     	
-    	String stSpaceToken = getParameter(SPACETOKEN_PARAM_NAME_KEY);
-    	// if no space token is explicitly provided, default to dash ("-")
-    	if (stSpaceToken == null || stSpaceToken.trim().equals(""))
+    	NamingPlan plan = this.getNamingPlan();
+    	SystemNameGenerator generator = new SystemNameGenerator(plan, this.utilityProvider.getFilenameNormalizer());
+    	// only fetch the parts of the page which the configured fields refer to
+    	DynamicMetadataField[] dynamicMetadata = generator.usesDynamicMetadata() ? page.getMetadata().getDynamicFields() : null;
+    	StructuredDataNode[] structuredData = generator.usesStructuredData() ? page.getStructuredData() : null;
+    	SystemNameResult result;
+    	try
     	{
-    		stSpaceToken = "-";
+    		result = generator.generate(page.getMetadata(), dynamicMetadata, structuredData, page);
     	}
-    	
-       	String stConcatToken = getParameter(CONCATTOKEN_PARAM_NAME_KEY);
-       	// if no concatenation token is explicitly provided, default to dash ("-")
-    	if (stConcatToken == null || stConcatToken.trim().equals(""))
+    	finally
     	{
-    		stConcatToken = "-";
+    		// this request's fields have now been resolved, and must not be reused by a later request
+    		discardResolvedFields(asset);
     	}
     	
-    	StringBuilder newName = new StringBuilder();
-    	String[] arIdentifiers = stIdentifiers.split(",");
-    	
-    	// iterate through specified fields & use derived values to build name string
-    	// if any of the specified fields contain null or empty values, throw exception & forbid asset creation
-    	for (String stIdentifier : arIdentifiers)
+    	// if any of the specified fields contain null or empty values, throw exception listing them all & forbid asset creation
+    	if (!result.isSuccess())
     	{
-    		String stNodeVal = "";
-    		// determine what type of field we are dealing with
-    		if (stIdentifier.contains(CUSTOM_METADATA_TOKEN))
-    		{
-    			// dynamic metadata fields
-    			DynamicMetadataField[] dynamicMetadata = page.getMetadata().getDynamicFields();
-    			if (dynamicMetadata == null)
-    			{
-    				this.setAllowCreation(false, "PageFieldsToSystemNamePlugin: This page contains no Dynamic Metadata Fiels, therefore '" + stIdentifier + "' is an invalid field identifier.");
-    				throw new FatalPluginException("PageFieldsToSystemNamePlugin: This page contains no Dynamic Metadata Fiels, therefore '" + stIdentifier + "' is an invalid field identifier.");
-    			}
-    			stNodeVal = this.searchDynamicMetadata(dynamicMetadata, stIdentifier);
-    			if (stNodeVal == null || stNodeVal.trim().equals(""))
-    			{
-    				this.setAllowCreation(false, "PageFieldsToSystemNamePlugin: The dynamic metadata field '" + stIdentifier + "' either does not exist or contains no value in the asset being created.");
-    				throw new FatalPluginException("PageFieldsToSystemNamePlugin: The dynamic metadata field '" + stIdentifier + "' either does not exist or contains no value in the asset being created.");
-    			}
-    			
-    		}
-    		else if (stIdentifier.contains(STRUCTURED_DATA_TOKEN))
-    		{
-    			// structured data (data definition) fields
-    			StructuredDataNode[] structuredData = page.getStructuredData();
-    			if (structuredData == null)
-    			{
-    				this.setAllowCreation(false, "PageFieldsToSystemNamePlugin: This Page contains no Structured Data, therefore '" + stIdentifier + "' is an invalid field identifier.");
-    				throw new FatalPluginException("PageFieldsToSystemNamePlugin: This Page contains no Structured Data, therefore '" + stIdentifier + "' is an invalid field identifier.");
-    			}
-    			stNodeVal = this.searchStructuredData(structuredData, stIdentifier);
-    			if (stNodeVal == null || stNodeVal.trim().equals(""))
-    			{
-    				this.setAllowCreation(false, "PageFieldsToSystemNamePlugin: The structured data field '" + stIdentifier + "' either does not exist or contains no value in the asset being created.");
-    				throw new FatalPluginException("PageFieldsToSystemNamePlugin: The structured data field '" + stIdentifier + "' either does not exist or contains no value in the asset being created.");
-    			}
-    			
-    		}
-    		else
-    		{
-    			// wired metadata fields
-    			stNodeVal = this.searchWiredMetadata(page.getMetadata(), stIdentifier);
-    			if (stNodeVal == null || stNodeVal.trim().equals(""))
-    			{
-    				this.setAllowCreation(false, "PageFieldsToSystemNamePlugin: The wired metadata field '" + stIdentifier + "' either does not exist or contains no value in the asset being created.");
-    				throw new FatalPluginException("PageFieldsToSystemNamePlugin: The wired metadata field '" + stIdentifier + "' either does not exist or contains no value in the asset being created.");
-    			}
-    			
-    		}
-    		
-    		// normalize for URL-safe system name
-    		stNodeVal = this.utilityProvider.getFilenameNormalizer().normalize(stNodeVal, new ArrayList<Character>());
-    		
-    		// replace spaces with space token
-			stNodeVal = stNodeVal.trim().replace(" ", stSpaceToken).toLowerCase();
-    		
-    		newName.append(stNodeVal);
-    		
-    		// append concatenation token
-    		newName.append(stConcatToken);
+    		throw this.forbidCreation(result.getMessage(), result);
     	}
+    	String stNewName = result.getName();
     	
-    	// strip trailing concatenation token
-    	if (newName.length() > stConcatToken.length())
+    	// if requested, avoid the names of the page's future siblings, adding a numeric suffix if necessary
+    	if (plan.isUniqueNames())
     	{
-    		newName.delete(newName.length() - stConcatToken.length(), newName.length());
+    		stNewName = this.reserveUniqueName(page, stNewName, plan);
     	}
     	
-    	String stNewName = newName.toString();
-    	
-    	if (stNewName == null || stNewName.trim().equals(""))
+    	// if requested, leave the page alone when its current name is still the one its fields generate, e.g. when
+    	// re-applied on edit, so that unchanged pages are not renamed (and their links rewritten & republished)
+    	if (plan.isChangedOnly() && stNewName.equals(page.getName()))
     	{
-    		this.setAllowCreation(false, "PageFieldsToSystemNamePlugin:  None of the following fields are populated: " + stIdentifiers);
-    		throw new FatalPluginException("PageFieldsToSystemNamePlugin:  None of the following fields are populated: " + stIdentifiers);
+    		this.setAllowCreation(true, "");
+    		return;
     	}
     	
     	// if all is well, update the asset's system name & allow creation of the asset
@@ -173,6 +151,52 @@ public final class PageFieldsToSystemNamePlugin extends StructuredDataPagePlugin
     	this.setAllowCreation(true, "");
     }
 
+    /**
+     * Reserves a name for the page which is unique within its parent folder.  The page's own current name does not
+     * count as taken, so a page which keeps its name is never given a suffix, and a suffixed name it already has is
+     * kept for as long as the name it was suffixed for belongs to another page.
+     */
+    private String reserveUniqueName(Page page, String stName, NamingPlan plan)
+    {
+    	String stFolderKey = SiblingNameRegistry.folderKey(page);
+    	if (stFolderKey == null)
+    	{
+    		// no folder to be unique within
+    		return stName;
+    	}
+    	PathIdentifier identifier = page.getIdentifier();
+    	String stOwner = identifier == null ? null : identifier.getId();
+    	return SiblingNameRegistry.getInstance().reserve(stFolderKey, page.getParentFolder(), stName, plan.getConcatToken(), plan.getMaxLength(), stOwner, page.getName());
+    }
+
+    /**
+     * Returns the compiled naming plan for the current parameter values, reusing this instance's plan when
+     * the parameters have not changed since the last submission.
+     */
+    private NamingPlan getNamingPlan() throws PluginException
+    {
+    	String[] parameters = new String[PLAN_PARAM_NAME_KEYS.length];
+    	for (int i = 0; i < parameters.length; i++)
+    	{
+    		parameters[i] = getParameter(PLAN_PARAM_NAME_KEYS[i]);
+    	}
+    	
+    	NamingPlan plan = this.namingPlan;
+    	if (plan == null || !plan.matches(parameters))
+    	{
+    		try
+    		{
+    			plan = NamingPlan.forParameters(parameters);
+    		}
+    		catch (IllegalArgumentException e)
+    		{
+    			throw this.forbidCreation(e.getMessage(), null);
+    		}
+    		this.namingPlan = plan;
+    	}
+    	return plan;
+    }
+
     /**
      * @see com.cms.assetfactory.BaseAssetFactoryPlugin#doPluginActionPre(com.hannonhill.cascade.api.asset.admin.AssetFactory, com.hannonhill.cascade.api.asset.home.FolderContainedAsset)
      */
@@ -182,12 +206,81 @@ public final class PageFieldsToSystemNamePlugin extends StructuredDataPagePlugin
         //code in this method will be executed before the user is presented with the
         //initial edit screen. This could be used for pre-population, etc.
     	
+    	// a new request has started, so nothing resolved for an earlier one may be reused
+    	discardResolvedFields(asset);
+    	
     	// suppress the system name field in the page creation UI, since it will be auto-generated
     	asset.setHideSystemName(true);
     	if (asset.getName() == null || asset.getName().trim().equals(""))
     	{
     	  asset.setName("hidden");
     	}
+    	
+    	this.warmStructuredDataAccessors(factory, asset);
+    }
+    
+    /**
+     * Learns the positions of the configured structured data fields from the factory's base asset (or, if there is
+     * none, the asset being created), so that submissions can read them directly.  Identifiers which match no field
+     * in the Data Definition are reported here, before the user has filled out the page.
+     */
+    private void warmStructuredDataAccessors(AssetFactory factory, FolderContainedAsset asset) throws PluginException
+    {
+    	if (!this.hasNameSource())
+    	{
+    		return;
+    	}
+    	NamingPlan plan = this.getNamingPlan();
+    	if (!plan.hasStructuredDataFields())
+    	{
+    		return;
+    	}
+    	
+    	FolderContainedAsset baseAsset = factory == null ? null : factory.getBaseAsset();
+    	Page page = this.isValidType(baseAsset) ? (Page)baseAsset : this.isValidType(asset) ? (Page)asset : null;
+    	StructuredDataNode[] structuredData = page == null ? null : page.getStructuredData();
+    	if (structuredData == null)
+    	{
+    		return;
+    	}
+    	
+    	List<String> missing = SystemNameGenerator.findMissingStructuredDataFields(plan, structuredData);
+    	if (missing.size() == 1)
+    	{
+    		throw this.forbidCreation("The structured data field '" + missing.get(0) + "' does not exist in the Data Definition of this asset factory.", null);
+    	}
+    	if (!missing.isEmpty())
+    	{
+    		StringBuilder stMessage = new StringBuilder("The following structured data fields do not exist in the Data Definition of this asset factory: ");
+    		for (int i = 0; i < missing.size(); i++)
+    		{
+    			stMessage.append(i == 0 ? "'" : ", '").append(missing.get(i)).append('\'');
+    		}
+    		throw this.forbidCreation(stMessage.append('.').toString(), null);
+    	}
+    }
+    
+    /**
+     * Forbids creation of the asset, building the message shown to the user only once.
+     * @param stMessage String description of every problem found
+     * @param result SystemNameResult which failed, or null if the failure was not in generating a name
+     * @return the exception to be thrown
+     */
+    private NamingFailedException forbidCreation(String stMessage, SystemNameResult result)
+    {
+    	String stFullMessage = "PageFieldsToSystemNamePlugin: " + stMessage;
+    	this.setAllowCreation(false, stFullMessage);
+    	return new NamingFailedException(stFullMessage, result);
+    }
+    
+    /**
+     * @return true if either the Field IDs or the Name Template parameter has been given
+     */
+    private boolean hasNameSource()
+    {
+    	String stIdentifiers = getParameter(FIELDIDS_PARAM_NAME_KEY);
+    	String stTemplate = getParameter(TEMPLATE_PARAM_NAME_KEY);
+    	return (stIdentifiers != null && !stIdentifiers.trim().equals("")) || (stTemplate != null && !stTemplate.trim().equals(""));
     }
     
     private boolean isValidType(FolderContainedAsset asset)
@@ -210,6 +303,13 @@ public final class PageFieldsToSystemNamePlugin extends StructuredDataPagePlugin
         paramDescriptionMap.put(FIELDIDS_PARAM_NAME_KEY, FIELDIDS_PARAM_DESC_KEY);
         paramDescriptionMap.put(SPACETOKEN_PARAM_NAME_KEY, SPACETOKEN_PARAM_DESC_KEY);
         paramDescriptionMap.put(CONCATTOKEN_PARAM_NAME_KEY, CONCATTOKEN_PARAM_DESC_KEY);
+        paramDescriptionMap.put(MAXVALUES_PARAM_NAME_KEY, MAXVALUES_PARAM_DESC_KEY);
+        paramDescriptionMap.put(FRAGMENTCACHE_PARAM_NAME_KEY, FRAGMENTCACHE_PARAM_DESC_KEY);
+        paramDescriptionMap.put(UNIQUE_PARAM_NAME_KEY, UNIQUE_PARAM_DESC_KEY);
+        paramDescriptionMap.put(CHANGEDONLY_PARAM_NAME_KEY, CHANGEDONLY_PARAM_DESC_KEY);
+        paramDescriptionMap.put(TEMPLATE_PARAM_NAME_KEY, TEMPLATE_PARAM_DESC_KEY);
+        paramDescriptionMap.put(MAXLENGTH_PARAM_NAME_KEY, MAXLENGTH_PARAM_DESC_KEY);
+        paramDescriptionMap.put(MAXVALUELENGTH_PARAM_NAME_KEY, MAXVALUELENGTH_PARAM_DESC_KEY);
         return paramDescriptionMap;
     }
 
@@ -220,7 +320,7 @@ public final class PageFieldsToSystemNamePlugin extends StructuredDataPagePlugin
     {
         //return a string array with all the name keys of
         //the parameters for the plugin
-        return new String[] { FIELDIDS_PARAM_NAME_KEY,SPACETOKEN_PARAM_NAME_KEY,CONCATTOKEN_PARAM_NAME_KEY };
+        return new String[] { FIELDIDS_PARAM_NAME_KEY,SPACETOKEN_PARAM_NAME_KEY,CONCATTOKEN_PARAM_NAME_KEY,MAXVALUES_PARAM_NAME_KEY,FRAGMENTCACHE_PARAM_NAME_KEY,UNIQUE_PARAM_NAME_KEY,CHANGEDONLY_PARAM_NAME_KEY,TEMPLATE_PARAM_NAME_KEY,MAXLENGTH_PARAM_NAME_KEY,MAXVALUELENGTH_PARAM_NAME_KEY };
     }
 
     /**
@@ -0,0 +1,113 @@
+package com.hannonhill.cascade.plugin;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.asset.home.FolderContainedAsset;
+
+/**
+ * The Dynamic Metadata & Structured Data of one asset, resolved once into a {@link DynamicMetadataIndex} and a
+ * {@link StructuredDataIndex} and shared by every {@link StructuredDataPagePlugin} applied to that asset, so that the
+ * plug-ins of a factory chain do not each walk the same fields again.  An index is only reused for the very array it
+ * was built from; given another array, e.g. after the asset's fields were replaced, the memo indexes that instead.<br/><br/>
+ *
+ * Memos belong to the asset being created, not to the thread creating it, so that pooled request threads never keep
+ * the fields of an earlier request alive.  A memo is itself a weak reference to its asset, compared by identity, and
+ * memos are kept in a fixed number of slots chosen by the asset's identity hash:  finding an asset's memo allocates
+ * nothing, a request allocates only its own memo, and however many requests leave their memos behind, no more than
+ * {@link #SLOTS} are ever held.  A memo is dropped when {@link #discard(FolderContainedAsset)} is called for its asset
+ * (as a request starts & once its name has been generated), when another asset's memo takes its slot, and is not
+ * reused once older than {@link #TIME_TO_LIVE_MILLIS} (a chain completes well within that).  Wired Metadata is never
+ * memoized, as earlier plug-ins in the chain may change it.
+ */
+public final class ResolvedFieldMemo extends WeakReference<FolderContainedAsset>
+{
+	/** How long a memo may be reused for, in milliseconds */
+	static final long TIME_TO_LIVE_MILLIS = 10 * 1000L;
+	/** The number of memos which may be held at once; a power of two */
+	static final int SLOTS = 256;
+
+	private static final AtomicReferenceArray<ResolvedFieldMemo> MEMOS = new AtomicReferenceArray<ResolvedFieldMemo>(SLOTS);
+
+	private final long expiry;
+	/** The arrays the indexes were built from, which a lookup must pass for them to be reused */
+	private DynamicMetadataField[] dynamicFields;
+	private DynamicMetadataIndex dynamicMetadataIndex;
+	private StructuredDataNode[] structuredData;
+	private StructuredDataIndex structuredDataIndex;
+
+	private ResolvedFieldMemo(FolderContainedAsset asset, long now)
+	{
+		super(asset);
+		this.expiry = now + TIME_TO_LIVE_MILLIS;
+	}
+
+	/**
+	 * Returns the memo for the given asset, creating it if no plug-in has yet resolved fields of the asset.
+	 * @param asset FolderContainedAsset whose fields are being resolved
+	 * @return the ResolvedFieldMemo for the asset
+	 */
+	static ResolvedFieldMemo forAsset(FolderContainedAsset asset)
+	{
+		long now = System.currentTimeMillis();
+		int slot = slotFor(asset);
+		ResolvedFieldMemo memo = MEMOS.get(slot);
+		if (memo == null || memo.get() != asset || now >= memo.expiry)
+		{
+			memo = new ResolvedFieldMemo(asset, now);
+			MEMOS.set(slot, memo);
+		}
+		return memo;
+	}
+
+	/**
+	 * Discards the memo of the given asset, so that none of its fields are shared with a later request.
+	 * @param asset FolderContainedAsset whose resolved fields are to be discarded
+	 */
+	public static void discard(FolderContainedAsset asset)
+	{
+		int slot = slotFor(asset);
+		ResolvedFieldMemo memo = MEMOS.get(slot);
+		if (memo != null && memo.get() == asset)
+		{
+			MEMOS.compareAndSet(slot, memo, null);
+		}
+	}
+
+	private static int slotFor(FolderContainedAsset asset)
+	{
+		return System.identityHashCode(asset) & (SLOTS - 1);
+	}
+
+	/**
+	 * @param dynamicFields DynamicMetadataField[] array of the asset's Dynamic Metadata, indexed unless a plug-in has
+	 * already indexed this same array
+	 * @return the index of the asset's Dynamic Metadata
+	 */
+	synchronized DynamicMetadataIndex getDynamicMetadataIndex(DynamicMetadataField[] dynamicFields)
+	{
+		if (dynamicMetadataIndex == null || this.dynamicFields != dynamicFields)
+		{
+			dynamicMetadataIndex = new DynamicMetadataIndex(dynamicFields);
+			this.dynamicFields = dynamicFields;
+		}
+		return dynamicMetadataIndex;
+	}
+
+	/**
+	 * @param structuredData StructuredDataNode[] array of the asset's top-level nodes, indexed unless a plug-in has
+	 * already indexed this same array
+	 * @return the index of the asset's Structured Data
+	 */
+	synchronized StructuredDataIndex getStructuredDataIndex(StructuredDataNode[] structuredData)
+	{
+		if (structuredDataIndex == null || this.structuredData != structuredData)
+		{
+			structuredDataIndex = new StructuredDataIndex(structuredData);
+			this.structuredData = structuredData;
+		}
+		return structuredDataIndex;
+	}
+}
@@ -0,0 +1,313 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hannonhill.cascade.api.asset.common.PathIdentifier;
+import com.hannonhill.cascade.api.asset.home.Folder;
+import com.hannonhill.cascade.api.asset.home.FolderContainedAsset;
+
+/**
+ * Hands out system names which are unique within a folder, so that pages generating the same name do not fail
+ * creation further down the line.  For each folder the registry keeps the names of the folder's existing children
+ * plus the names it has reserved for pages still being created.  A page never competes with itself:  its own name in
+ * the folder, and names reserved for it earlier, are free for it to keep.  Nor is a page given a new suffix while the
+ * name it was suffixed for is still taken:  <code>name-2</code> stays <code>name-2</code>.<br/><br/>
+ *
+ * When a name is taken, a deterministic suffix is appended:  <code>name-2</code>, <code>name-3</code> and so on.  If
+ * the name would then exceed the Maximum Name Length, its end makes way for the suffix.
+ * The next suffix for each name is remembered, so finding a free name takes constant amortized time rather than
+ * probing from <code>-2</code> every time.  Reservations expire after a timeout; by then the page has either been
+ * created (and appears among the folder's children when they are next read) or was abandoned, and the name is
+ * released.<br/><br/>
+ *
+ * Folders are guarded by a fixed set of striped locks, so concurrent creation in different folders rarely contends.
+ * Once many folders are tracked, those left idle for longer than the timeout are forgotten, along with the suffixes
+ * remembered for them, by a sweep made at most once per timeout rather than on every reservation.
+ */
+final class SiblingNameRegistry
+{
+	/** How long a name stays reserved, and how long a folder's children are trusted before being read again */
+	static final long DEFAULT_RESERVATION_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+
+	private static final int LOCK_STRIPES = 32;
+	/** Number of folders tracked beyond which idle folders are swept away */
+	private static final int MAX_IDLE_FOLDERS = 1024;
+	/** Place value of the leading digit of the largest suffix recognised in a page's current name */
+	private static final int MAX_SUFFIX_SCALE = 100000000;
+
+	private static final SiblingNameRegistry INSTANCE = new SiblingNameRegistry(DEFAULT_RESERVATION_TIMEOUT_MILLIS);
+
+	private final long timeoutMillis;
+	private final Object[] locks = new Object[LOCK_STRIPES];
+	private final Map<String, FolderNames> folders = new ConcurrentHashMap<String, FolderNames>();
+	/** When idle folders are next looked for */
+	private volatile long nextSweep;
+
+	SiblingNameRegistry(long timeoutMillis)
+	{
+		this.timeoutMillis = timeoutMillis;
+		for (int i = 0; i < LOCK_STRIPES; i++)
+		{
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * @return the registry shared by all plug-in instances
+	 */
+	static SiblingNameRegistry getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the key identifying an asset's parent folder:  its id, or failing that its path.
+	 * @param asset FolderContainedAsset whose folder is to be identified
+	 * @return String folder key, or null if the asset's folder is not known
+	 */
+	static String folderKey(FolderContainedAsset asset)
+	{
+		PathIdentifier parentIdentifier = asset.getParentFolderIdentifier();
+		if (parentIdentifier == null)
+		{
+			return null;
+		}
+		if (parentIdentifier.getId() != null)
+		{
+			return parentIdentifier.getId();
+		}
+		return parentIdentifier.getPath() == null ? null : parentIdentifier.getPath().getPathAsString();
+	}
+
+	/**
+	 * Reserves a name unique within the given folder, based on the provided name.
+	 * @param folderKey String uniquely identifying the folder, e.g. its id
+	 * @param folder Folder whose children's names must be avoided; may be null if it is not available
+	 * @param stName String desired name
+	 * @param suffixToken String placed between the name and its numeric suffix
+	 * @param maxLength int maximum length of a suffixed name, or {@link NamingPlan#UNLIMITED_LENGTH}
+	 * @param owner String id of the page the name is for, whose own names do not count as taken; null for a new page
+	 * @param stCurrentName String the page's current name, kept if it is a suffixed form of <code>stName</code> and
+	 * <code>stName</code> is taken; may be null
+	 * @return <code>stName</code> if it is free, otherwise the current name if it may be kept, otherwise
+	 * <code>stName</code> (cut short if need be) followed by the first free suffix
+	 */
+	String reserve(String folderKey, Folder folder, String stName, String suffixToken, int maxLength, String owner, String stCurrentName)
+	{
+		long now = System.currentTimeMillis();
+		String reserved;
+		synchronized (lockFor(folderKey))
+		{
+			FolderNames names = folders.get(folderKey);
+			if (names == null)
+			{
+				names = new FolderNames();
+				folders.put(folderKey, names);
+			}
+			names.expire(now);
+			if (now - names.loadedAt > timeoutMillis)
+			{
+				names.load(folder, now);
+			}
+			reserved = names.reserve(stName, suffixToken, maxLength, owner, stCurrentName, now + timeoutMillis);
+			names.lastUsed = now;
+		}
+
+		if (now >= nextSweep && folders.size() > MAX_IDLE_FOLDERS)
+		{
+			nextSweep = now + timeoutMillis;
+			forgetIdleFolders(now);
+		}
+		return reserved;
+	}
+
+	/**
+	 * Drops folders which have not been used for longer than the timeout, and so hold no live reservations.
+	 */
+	private void forgetIdleFolders(long now)
+	{
+		for (Iterator<Map.Entry<String, FolderNames>> it = folders.entrySet().iterator(); it.hasNext();)
+		{
+			Map.Entry<String, FolderNames> entry = it.next();
+			synchronized (lockFor(entry.getKey()))
+			{
+				if (now - entry.getValue().lastUsed > timeoutMillis)
+				{
+					it.remove();
+				}
+			}
+		}
+	}
+
+	private Object lockFor(String folderKey)
+	{
+		return locks[(folderKey.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+	}
+
+	/**
+	 * The known names of one folder.  Only accessed while holding the folder's lock stripe.
+	 */
+	private static final class FolderNames
+	{
+		/** Names of the folder's children when they were last read, & the ids of the children (where known) */
+		private Map<String, String> existing = new HashMap<String, String>();
+		/** Reserved names, in reservation (and so expiry) order */
+		private final LinkedHashMap<String, Reservation> reservations = new LinkedHashMap<String, Reservation>();
+		/** The next suffix to try for each name which has been taken */
+		private final Map<String, Integer> nextSuffix = new HashMap<String, Integer>();
+		private long loadedAt = Long.MIN_VALUE / 2;
+		private long lastUsed;
+
+		void load(Folder folder, long now)
+		{
+			Map<String, String> names = new HashMap<String, String>();
+			List<PathIdentifier> children = folder == null ? null : folder.getChildrenIdentifiers();
+			if (children != null)
+			{
+				for (PathIdentifier child : children)
+				{
+					List<String> segments = child.getPath() == null ? null : child.getPath().getPathSegments();
+					if (segments != null && !segments.isEmpty())
+					{
+						names.put(segments.get(segments.size() - 1), child.getId());
+					}
+				}
+			}
+			existing = names;
+			loadedAt = now;
+			// reservations which have since been created are now simply existing names
+			reservations.keySet().removeAll(names.keySet());
+			// names which are free again start over from the first suffix once next taken
+			for (Iterator<String> it = nextSuffix.keySet().iterator(); it.hasNext();)
+			{
+				if (!isTaken(it.next(), null))
+				{
+					it.remove();
+				}
+			}
+		}
+
+		void expire(long now)
+		{
+			for (Iterator<Reservation> it = reservations.values().iterator(); it.hasNext();)
+			{
+				if (it.next().expiry > now)
+				{
+					break;
+				}
+				it.remove();
+			}
+		}
+
+		/**
+		 * @param owner String id of the page asking, or null to count every name as taken
+		 * @return true if the name belongs to a child, or is reserved for a page, other than the owner
+		 */
+		boolean isTaken(String stName, String owner)
+		{
+			if (existing.containsKey(stName) && (owner == null || !owner.equals(existing.get(stName))))
+			{
+				return true;
+			}
+			Reservation reservation = reservations.get(stName);
+			return reservation != null && (owner == null || !owner.equals(reservation.owner));
+		}
+
+		String reserve(String stName, String suffixToken, int maxLength, String owner, String stCurrentName, long expiry)
+		{
+			String reserved = stName;
+			if (isTaken(stName, owner) && isSuffixedForm(stCurrentName, stName, suffixToken, maxLength) && !isTaken(stCurrentName, owner))
+			{
+				// the page already has a suffixed name in place of one held by a sibling
+				reserved = stCurrentName;
+			}
+			else if (isTaken(stName, owner))
+			{
+				Integer next = nextSuffix.get(stName);
+				int suffix = next == null ? 2 : next.intValue();
+				reserved = suffixed(stName, suffixToken, suffix, maxLength);
+				while (isTaken(reserved, owner))
+				{
+					reserved = suffixed(stName, suffixToken, ++suffix, maxLength);
+				}
+				nextSuffix.put(stName, Integer.valueOf(suffix + 1));
+			}
+			// re-reserving moves the name to the end, keeping the reservations in expiry order
+			reservations.remove(reserved);
+			reservations.put(reserved, new Reservation(owner, expiry));
+			return reserved;
+		}
+
+		/**
+		 * @return true if the candidate is the name followed by the suffix token & a number of at least 2, as
+		 * {@link #suffixed} would make it
+		 */
+		private static boolean isSuffixedForm(String stCandidate, String stName, String suffixToken, int maxLength)
+		{
+			if (stCandidate == null)
+			{
+				return false;
+			}
+			// try each run of trailing digits which could be the number, shortest first
+			int suffix = 0;
+			int scale = 1;
+			for (int i = stCandidate.length() - 1; i >= 0 && scale <= MAX_SUFFIX_SCALE; i--, scale *= 10)
+			{
+				char c = stCandidate.charAt(i);
+				if (c < '0' || c > '9')
+				{
+					break;
+				}
+				suffix += (c - '0') * scale;
+				if (c != '0' && suffix >= 2 && suffixed(stName, suffixToken, suffix, maxLength).equals(stCandidate))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return the name followed by the suffix token & number, its end cut off if need be to fit the maximum length
+		 */
+		private static String suffixed(String stName, String suffixToken, int suffix, int maxLength)
+		{
+			String stSuffix = suffixToken + suffix;
+			int end = Math.max(0, Math.min(stName.length(), maxLength - stSuffix.length()));
+			if (end < stName.length())
+			{
+				if (end > 0 && Character.isHighSurrogate(stName.charAt(end - 1)))
+				{
+					end--;
+				}
+				// drop any suffix token left dangling by the cut
+				while (suffixToken.length() > 0 && stName.startsWith(suffixToken, end - suffixToken.length()))
+				{
+					end -= suffixToken.length();
+				}
+			}
+			return stName.substring(0, end) + stSuffix;
+		}
+	}
+
+	/**
+	 * A name held for a page until it is created or the reservation expires.
+	 */
+	private static final class Reservation
+	{
+		/** Id of the page the name is held for, or null for a new page */
+		private final String owner;
+		private final long expiry;
+
+		Reservation(String owner, long expiry)
+		{
+			this.owner = owner;
+			this.expiry = expiry;
+		}
+	}
+}
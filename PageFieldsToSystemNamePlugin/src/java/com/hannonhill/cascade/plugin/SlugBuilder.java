@@ -0,0 +1,374 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.hannonhill.cascade.api.util.FilenameNormalizer;
+
+/**
+ * Assembles a system name from field values in a single buffer.  Each value is normalized, then trimmed, has its
+ * spaces replaced with the Space Token and is lower-cased in one pass while being appended, and values are joined
+ * with the Concatenation Token.<br/><br/>
+ *
+ * The result is identical to that of the original per-field pipeline:<br/>
+ * <code>normalize(value).trim().replace(" ", spaceToken).toLowerCase()</code>, joined with the Concatenation Token<br/>
+ * except that lower-casing is locale-independent (<code>Locale.ROOT</code>) rather than dependent on the JVM default locale.
+ * When the normalizer is a {@link FastFilenameNormalizer}, values it can map are normalized in that same pass.  When a
+ * {@link FragmentCache} is provided, finished fragments are looked up there first & added to it after being built.
+ * A {@link NameTemplate} appends its values & literals without the Concatenation Token.  Dates are formatted straight
+ * into the name, and only normalized if the normalizer would change their digits or dashes.<br/><br/>
+ *
+ * When the name's length is limited, values are no longer normalized once the limit is reached, and of a value which
+ * would exceed it, only as much is normalized as could still fit.  A name which
+ * exceeds the limit is cut short and ends with the Concatenation Token and a hash of every value appended, so that
+ * names which differ only beyond the limit remain distinct.
+ */
+final class SlugBuilder
+{
+	/** The number of characters in the hash ending a name which has been cut short */
+	static final int HASH_LENGTH = 8;
+	/** No characters beyond the normalizer's defaults are allowed in system names */
+	private static final List<Character> NO_ADDITIONAL_CHARS = Collections.emptyList();
+	private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+	private static final int FNV_PRIME = 0x01000193;
+
+	private final FilenameNormalizer normalizer;
+	private final FastFilenameNormalizer fastNormalizer;
+	private final String spaceToken;
+	private final String lowerSpaceToken;
+	private final String concatToken;
+	private final FragmentCache fragmentCache;
+	private final StringBuilder name;
+	private final int maxLength;
+	/** FNV-1a hash of every value & literal appended, kept only when the length is limited */
+	private int hash = FNV_OFFSET_BASIS;
+	private boolean full;
+
+	/**
+	 * @param normalizer FilenameNormalizer used to make each value URL-safe
+	 * @param spaceToken String token to replace spaces with
+	 * @param concatToken String token to join values with
+	 * @param fragmentCache FragmentCache of finished fragments for this Space Token, or null
+	 */
+	SlugBuilder(FilenameNormalizer normalizer, String spaceToken, String concatToken, FragmentCache fragmentCache)
+	{
+		this(normalizer, spaceToken, concatToken, fragmentCache, NamingPlan.UNLIMITED_LENGTH);
+	}
+
+	/**
+	 * @param maxLength int maximum length of the name, or {@link NamingPlan#UNLIMITED_LENGTH}; if limited, it must
+	 * exceed the length of the Concatenation Token and the hash
+	 * @see #SlugBuilder(FilenameNormalizer, String, String, FragmentCache)
+	 */
+	SlugBuilder(FilenameNormalizer normalizer, String spaceToken, String concatToken, FragmentCache fragmentCache, int maxLength)
+	{
+		this.normalizer = normalizer;
+		this.fastNormalizer = normalizer instanceof FastFilenameNormalizer ? (FastFilenameNormalizer)normalizer : null;
+		this.spaceToken = spaceToken;
+		this.lowerSpaceToken = isAscii(spaceToken, 0, spaceToken.length()) ? spaceToken.toLowerCase(Locale.ROOT) : null;
+		this.concatToken = concatToken;
+		this.fragmentCache = fragmentCache;
+		this.name = new StringBuilder(maxLength < 64 ? maxLength + concatToken.length() : 64);
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Normalizes the given field value and appends it to the name, followed by the Concatenation Token.
+	 * @param value CharSequence field value:  a String, or a buffer of joined values which may be reused afterwards
+	 */
+	void append(CharSequence value)
+	{
+		appendValue(value);
+		if (!full)
+		{
+			name.append(concatToken);
+		}
+	}
+
+	/**
+	 * Normalizes the given field value and appends it to the name, with no Concatenation Token.  Values which are
+	 * not Strings, i.e. joined values, are normalized directly from their buffer and are not cached.
+	 * @param value CharSequence field value
+	 */
+	void appendValue(CharSequence value)
+	{
+		if (maxLength == NamingPlan.UNLIMITED_LENGTH)
+		{
+			appendNormalized(value);
+			return;
+		}
+		if (!isBelowLimit(value))
+		{
+			return;
+		}
+		// only normalize as much of a long value as could still fit, allowing for characters normalization drops
+		int bound = 2 * (maxLength - name.length()) + 16;
+		if (value.length() <= bound)
+		{
+			appendNormalized(value);
+		}
+		else
+		{
+			int start = name.length();
+			appendNormalized(value.subSequence(0, Character.isHighSurrogate(value.charAt(bound - 1)) ? bound - 1 : bound).toString());
+			if (name.length() > maxLength)
+			{
+				// the part read already overflows the name, so the rest of the value is dropped & the name hashed
+				full = true;
+				return;
+			}
+			// normalization dropped more than allowed for, so the part read may not fill the name:  read it all
+			name.setLength(start);
+			appendNormalized(value);
+		}
+		// a name exactly at the limit is still complete, unless more is appended to it
+		full |= name.length() > maxLength;
+	}
+
+	/**
+	 * Normalizes a value into the name, through the fragment cache when the value is a String.
+	 */
+	private void appendNormalized(CharSequence value)
+	{
+		String cacheKey = fragmentCache != null && value instanceof String ? (String)value : null;
+		String fragment = cacheKey == null ? null : fragmentCache.get(cacheKey);
+		if (fragment != null)
+		{
+			name.append(fragment);
+			return;
+		}
+		int start = name.length();
+		if (fastNormalizer == null || lowerSpaceToken == null || !fastNormalizer.appendSlug(value, name, lowerSpaceToken))
+		{
+			appendSlug(normalizer.normalize(value.toString(), NO_ADDITIONAL_CHARS));
+		}
+		if (cacheKey != null)
+		{
+			fragmentCache.put(cacheKey, name.substring(start));
+		}
+	}
+
+	/**
+	 * Appends the date of an instant as <code>yyyy-mm-dd</code>, followed by the Concatenation Token, as if its
+	 * formatted value had been appended.
+	 * @param millis long instant, in milliseconds since the epoch
+	 * @see DateFormatter#appendIsoDate(StringBuilder, long)
+	 */
+	void appendIsoDate(long millis)
+	{
+		long start = NamingStatistics.collecting() ? System.nanoTime() : 0;
+		int valueStart = name.length();
+		DateFormatter.appendIsoDate(name, millis);
+		if (start != 0)
+		{
+			NamingStatistics.record(NamingStatistics.Stage.DATE_FORMATTING, start);
+		}
+		appendWritten(valueStart);
+	}
+
+	/**
+	 * Appends a Calendar field value (<code>MM-dd-yyyy</code>) as <code>yyyy-mm-dd</code>, followed by the
+	 * Concatenation Token, as if its formatted value had been appended.
+	 * @param value String Calendar field value
+	 * @return false (and nothing is appended) if the value is not of the form <code>MM-dd-yyyy</code>
+	 * @see DateFormatter#appendCalendarDate(StringBuilder, String)
+	 */
+	boolean appendCalendarDate(String value)
+	{
+		long start = NamingStatistics.collecting() ? System.nanoTime() : 0;
+		int valueStart = name.length();
+		boolean formatted = DateFormatter.appendCalendarDate(name, value);
+		if (start != 0)
+		{
+			NamingStatistics.record(NamingStatistics.Stage.DATE_FORMATTING, start);
+		}
+		if (formatted)
+		{
+			appendWritten(valueStart);
+		}
+		return formatted;
+	}
+
+	/**
+	 * Completes a value which has just been written to the end of the name unnormalized, from <code>valueStart</code>:
+	 * kept in place if the normalizer would leave it as it is, otherwise taken out & appended as any other value.
+	 */
+	private void appendWritten(int valueStart)
+	{
+		if (fastNormalizer == null || !fastNormalizer.keepsAsIs(name, valueStart, name.length()))
+		{
+			String value = name.substring(valueStart);
+			name.setLength(valueStart);
+			append(value);
+			return;
+		}
+		if (maxLength != NamingPlan.UNLIMITED_LENGTH)
+		{
+			addToHash(name, valueStart, name.length());
+			// as in appendValue, a value is only kept if the name was below the limit before it
+			full |= valueStart > maxLength;
+			if (full)
+			{
+				name.setLength(valueStart);
+				return;
+			}
+			full |= name.length() > maxLength;
+		}
+		if (!full)
+		{
+			name.append(concatToken);
+		}
+	}
+
+	/**
+	 * Appends text which is already URL-safe & lower-case, e.g. a Name Template literal, as it is.
+	 * @param literal String text to append
+	 */
+	void appendLiteral(String literal)
+	{
+		if (maxLength == NamingPlan.UNLIMITED_LENGTH || isBelowLimit(literal))
+		{
+			name.append(literal);
+		}
+	}
+
+	/**
+	 * Adds the text to the hash and tells whether the name is still short enough for it to be appended.
+	 */
+	private boolean isBelowLimit(CharSequence text)
+	{
+		addToHash(text, 0, text.length());
+		// a name at the limit may still be complete, e.g. if this value is empty & the token before it is stripped
+		full |= name.length() > maxLength;
+		return !full;
+	}
+
+	/**
+	 * Adds one value, <code>text[start, end)</code>, to the hash.
+	 */
+	private void addToHash(CharSequence text, int start, int end)
+	{
+		int h = hash;
+		for (int i = start; i < end; i++)
+		{
+			h = (h ^ text.charAt(i)) * FNV_PRIME;
+		}
+		// separate the values, so that e.g. "ab" & "c" hash differently from "a" & "bc"
+		hash = (h ^ 0xffff) * FNV_PRIME;
+	}
+
+	/**
+	 * Appends an already normalized value:  trimmed, with spaces replaced by the Space Token and lower-cased.
+	 */
+	private void appendSlug(String normalized)
+	{
+		// trim exactly as String.trim() does
+		int start = 0;
+		int end = normalized.length();
+		while (start < end && normalized.charAt(start) <= ' ')
+		{
+			start++;
+		}
+		while (end > start && normalized.charAt(end - 1) <= ' ')
+		{
+			end--;
+		}
+
+		if (lowerSpaceToken == null || !isAscii(normalized, start, end))
+		{
+			// full case mapping of non-ASCII text is context-sensitive, so leave it to String
+			name.append(normalized.substring(start, end).replace(" ", spaceToken).toLowerCase(Locale.ROOT));
+			return;
+		}
+
+		for (int i = start; i < end; i++)
+		{
+			char c = normalized.charAt(i);
+			if (c == ' ')
+			{
+				name.append(lowerSpaceToken);
+			}
+			else if (c >= 'A' && c <= 'Z')
+			{
+				name.append((char)(c + ('a' - 'A')));
+			}
+			else
+			{
+				name.append(c);
+			}
+		}
+	}
+
+	private static boolean isAscii(String value, int start, int end)
+	{
+		for (int i = start; i < end; i++)
+		{
+			if (value.charAt(i) >= 0x80)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the assembled name, without the trailing Concatenation Token
+	 */
+	String build()
+	{
+		// strip trailing concatenation token
+		if (!full && name.length() > concatToken.length())
+		{
+			name.setLength(name.length() - concatToken.length());
+		}
+		return buildAsIs();
+	}
+
+	/**
+	 * @return the assembled name, exactly as appended unless it exceeds the maximum length
+	 */
+	String buildAsIs()
+	{
+		if (!full && name.length() <= maxLength)
+		{
+			return name.toString();
+		}
+		// cut short, dropping any tokens left dangling at the cut
+		int end = Math.min(maxLength - concatToken.length() - HASH_LENGTH, name.length());
+		if (end > 0 && Character.isHighSurrogate(name.charAt(end - 1)))
+		{
+			end--;
+		}
+		name.setLength(end);
+		String appendedSpaceToken = lowerSpaceToken != null ? lowerSpaceToken : spaceToken.toLowerCase(Locale.ROOT);
+		while (endsWith(concatToken) || endsWith(appendedSpaceToken))
+		{
+			name.setLength(name.length() - (endsWith(concatToken) ? concatToken.length() : appendedSpaceToken.length()));
+		}
+		name.append(concatToken);
+		String hex = Integer.toHexString(hash);
+		for (int i = hex.length(); i < HASH_LENGTH; i++)
+		{
+			name.append('0');
+		}
+		return name.append(hex).toString();
+	}
+
+	private boolean endsWith(String token)
+	{
+		int start = name.length() - token.length();
+		if (token.length() == 0 || start < 0)
+		{
+			return false;
+		}
+		for (int i = 0; i < token.length(); i++)
+		{
+			if (name.charAt(start + i) != token.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
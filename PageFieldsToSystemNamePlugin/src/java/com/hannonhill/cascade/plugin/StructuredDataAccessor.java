@@ -0,0 +1,154 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+
+/**
+ * Positional accessor for a single Structured Data field:  the sequence of child positions leading from the top level
+ * of a Data Definition to the field, learned once per Data Definition so that subsequent Pages can be read with direct
+ * array indexing.<br/><br/>
+ *
+ * An accessor is only compiled when its identifier resolves to exactly one field, and before every read it verifies
+ * that the array lengths and node identifiers along its path still match those it was compiled from.  Any difference
+ * (e.g. an additional instance of a repeated group) causes {@link #locate(StructuredDataNode[])} to return null, and the
+ * caller must fall back to a full search.
+ */
+final class StructuredDataAccessor
+{
+	/** Marker for an identifier which matches no field at all in the Data Definition */
+	static final StructuredDataAccessor NOT_FOUND = new StructuredDataAccessor(new int[0], new int[0], new String[0]);
+
+	private final int[] positions;
+	private final int[] lengths;
+	private final String[] identifiers;
+
+	private StructuredDataAccessor(int[] positions, int[] lengths, String[] identifiers)
+	{
+		this.positions = positions;
+		this.lengths = lengths;
+		this.identifiers = identifiers;
+	}
+
+	/**
+	 * Compiles an accessor for the given Structured Data path against a Page's Structured Data.
+	 * @param structuredData StructuredDataNode[] array of a Page's top-level nodes
+	 * @param path String[] path as returned by {@link FieldIdentifier#getStructuredDataPath()}
+	 * @return the accessor; {@link #NOT_FOUND} if the path matches no field; or null if the path is ambiguous
+	 * (matches more than one field or uses occurrence indexes) and must always be resolved by search
+	 */
+	static StructuredDataAccessor compile(StructuredDataNode[] structuredData, String[] path)
+	{
+		for (String segment : path)
+		{
+			if (StructuredDataIndex.getOccurrence(segment) > 0)
+			{
+				return null;
+			}
+		}
+
+		List<int[]> matches = new ArrayList<int[]>(2);
+		collect(structuredData, path, 0, new int[0], matches);
+		if (matches.isEmpty())
+		{
+			return NOT_FOUND;
+		}
+		if (matches.size() > 1)
+		{
+			return null;
+		}
+
+		int[] positions = matches.get(0);
+		int[] lengths = new int[positions.length];
+		String[] identifiers = new String[positions.length];
+		StructuredDataNode[] nodes = structuredData;
+		for (int i = 0; i < positions.length; i++)
+		{
+			StructuredDataNode node = nodes[positions[i]];
+			lengths[i] = nodes.length;
+			identifiers[i] = node.getIdentifier();
+			nodes = node.isGroup() ? node.getGroup() : null;
+		}
+		return new StructuredDataAccessor(positions, lengths, identifiers);
+	}
+
+	/**
+	 * Collects the positions of every text field matching <code>path</code>, following the same rules as
+	 * {@link StructuredDataPagePlugin#searchStructuredData(StructuredDataNode[], String[], int)}.
+	 */
+	private static void collect(StructuredDataNode[] structuredData, String[] path, int depth, int[] prefix, List<int[]> matches)
+	{
+		boolean isField = depth == path.length - 1;
+		for (int i = 0; i < structuredData.length; i++)
+		{
+			StructuredDataNode node = structuredData[i];
+			if (node.isGroup())
+			{
+				if (isField)
+				{
+					collect(node.getGroup(), path, depth, append(prefix, i), matches);
+				}
+				else if (path[depth].equals(node.getIdentifier()))
+				{
+					collect(node.getGroup(), path, depth + 1, append(prefix, i), matches);
+				}
+			}
+			else if (isField && node.isText() && path[depth].equals(node.getIdentifier()))
+			{
+				matches.add(append(prefix, i));
+			}
+		}
+	}
+
+	private static int[] append(int[] prefix, int position)
+	{
+		int[] positions = new int[prefix.length + 1];
+		System.arraycopy(prefix, 0, positions, 0, prefix.length);
+		positions[prefix.length] = position;
+		return positions;
+	}
+
+	/**
+	 * Locates this accessor's field in a Page's Structured Data.
+	 * @param structuredData StructuredDataNode[] array of a Page's top-level nodes
+	 * @return the field's node, or null if the Structured Data no longer has the shape this accessor was compiled from
+	 */
+	StructuredDataNode locate(StructuredDataNode[] structuredData)
+	{
+		StructuredDataNode[] nodes = structuredData;
+		StructuredDataNode node = null;
+		for (int i = 0; i < positions.length; i++)
+		{
+			if (nodes == null || nodes.length != lengths[i])
+			{
+				return null;
+			}
+			node = nodes[positions[i]];
+			if (!identifiers[i].equals(node.getIdentifier()))
+			{
+				return null;
+			}
+			nodes = node.isGroup() ? node.getGroup() : null;
+		}
+		return node != null && node.isText() ? node : null;
+	}
+
+	/**
+	 * Computes a key identifying the Data Definition of a Page from its top-level nodes, used to keep separate
+	 * accessors for each Data Definition sharing a naming plan.
+	 * @param structuredData StructuredDataNode[] array of a Page's top-level nodes
+	 * @return long schema key
+	 */
+	static long schemaKey(StructuredDataNode[] structuredData)
+	{
+		long key = structuredData.length;
+		for (StructuredDataNode node : structuredData)
+		{
+			String stIdentifier = node.getIdentifier();
+			key = 31 * key + (stIdentifier == null ? 0 : stIdentifier.hashCode());
+			key = 31 * key + (node.isGroup() ? 1 : 0);
+		}
+		return key;
+	}
+}
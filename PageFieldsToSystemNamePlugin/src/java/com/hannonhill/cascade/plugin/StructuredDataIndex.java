@@ -0,0 +1,139 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+
+/**
+ * Index over a Page's Structured Data, built in a single traversal of the <code>StructuredDataNode[]</code> tree so that
+ * any number of Structured Data identifiers can then be resolved with a handful of map lookups.<br/><br/>
+ *
+ * Every group in the tree (and the tree itself) is represented by a {@link Scope} which maps the identifiers of its
+ * direct child groups to those groups, and the identifiers of all text fields beneath it (at any depth) to those fields.
+ * Both are kept in document order, so the first match is always the same node a depth-first search would find.<br/><br/>
+ *
+ * A path segment may carry a one-based occurrence index to address a specific instance of a repeated group or field,
+ * e.g. <code>system-data-structure/event[2]/date</code>.
+ */
+public final class StructuredDataIndex
+{
+	private final Scope root = new Scope();
+
+	/**
+	 * Indexes the provided Structured Data.
+	 * @param structuredData StructuredDataNode[] array of a Page's top-level nodes
+	 */
+	public StructuredDataIndex(StructuredDataNode[] structuredData)
+	{
+		List<Scope> openScopes = new ArrayList<Scope>();
+		openScopes.add(root);
+		index(structuredData, openScopes);
+	}
+
+	private static void index(StructuredDataNode[] structuredData, List<Scope> openScopes)
+	{
+		Scope scope = openScopes.get(openScopes.size() - 1);
+		for (StructuredDataNode node : structuredData)
+		{
+			if (node.isGroup())
+			{
+				Scope group = new Scope();
+				add(scope.groups, node.getIdentifier(), group);
+				openScopes.add(group);
+				index(node.getGroup(), openScopes);
+				openScopes.remove(openScopes.size() - 1);
+			}
+			else if (node.isText())
+			{
+				// a field may be addressed relative to any of its enclosing groups
+				for (int i = 0; i < openScopes.size(); i++)
+				{
+					add(openScopes.get(i).fields, node.getIdentifier(), node);
+				}
+			}
+		}
+	}
+
+	private static <T> void add(Map<String, List<T>> map, String stIdentifier, T value)
+	{
+		List<T> values = map.get(stIdentifier);
+		if (values == null)
+		{
+			values = new ArrayList<T>(2);
+			map.put(stIdentifier, values);
+		}
+		values.add(value);
+	}
+
+	/**
+	 * @return the Scope representing the top level of the Structured Data
+	 */
+	Scope getRoot()
+	{
+		return root;
+	}
+
+	/**
+	 * Returns the one-based occurrence index carried by a path segment, e.g. <code>2</code> for <code>"event[2]"</code>.
+	 * @param segment String path segment
+	 * @return int occurrence index, or 0 if the segment carries none
+	 */
+	static int getOccurrence(String segment)
+	{
+		int open = segment.indexOf('[');
+		if (open < 0 || !segment.endsWith("]"))
+		{
+			return 0;
+		}
+		int occurrence = 0;
+		for (int i = open + 1; i < segment.length() - 1; i++)
+		{
+			char c = segment.charAt(i);
+			if (c < '0' || c > '9')
+			{
+				return 0;
+			}
+			occurrence = occurrence * 10 + (c - '0');
+		}
+		return occurrence;
+	}
+
+	/**
+	 * Returns a path segment without its occurrence index, e.g. <code>"event"</code> for <code>"event[2]"</code>.
+	 * @param segment String path segment
+	 * @return String identifier named by the segment
+	 */
+	static String getIdentifier(String segment)
+	{
+		return getOccurrence(segment) > 0 ? segment.substring(0, segment.indexOf('[')) : segment;
+	}
+
+	/**
+	 * A group (or the top level) of the indexed Structured Data.
+	 */
+	static final class Scope
+	{
+		private final Map<String, List<Scope>> groups = new HashMap<String, List<Scope>>();
+		private final Map<String, List<StructuredDataNode>> fields = new HashMap<String, List<StructuredDataNode>>();
+
+		/**
+		 * @return the direct child groups with the given identifier in document order, or null if there are none
+		 */
+		List<Scope> getGroups(String stIdentifier)
+		{
+			return groups.get(stIdentifier);
+		}
+
+		/**
+		 * @return the text fields at any depth beneath this scope with the given identifier in document order,
+		 * or null if there are none
+		 */
+		List<StructuredDataNode> getFields(String stIdentifier)
+		{
+			return fields.get(stIdentifier);
+		}
+	}
+}
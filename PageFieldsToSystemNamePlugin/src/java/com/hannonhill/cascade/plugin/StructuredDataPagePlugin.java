@@ -3,11 +3,10 @@ package com.hannonhill.cascade.plugin;
 import com.hannonhill.cascade.api.asset.common.Metadata;
 import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
 import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.asset.home.FolderContainedAsset;
 import com.cms.assetfactory.BaseAssetFactoryPlugin;
 
 import java.util.Date;
-import java.util.Calendar;
-import java.util.Formatter;
 
 /**
  * Abstract Plug-in class useful in searching out Page Field values based on provided String field
@@ -20,7 +19,11 @@ import java.util.Formatter;
  * 
  * Dynamic Metadata fields:  [dynamic-metadata/field-name]  e.g. dynamic-metadata/my-custom-field1,dynamic-metadata/my-custom-field2<br/><br/>
  * 
- * Structured Data (Data Definition) fields:  [system-data-structure/{group-name}/field-name]  e.g. system-data-structure/my-group/my-field,system-data-structure/my-ungrouped-field
+ * Structured Data (Data Definition) fields:  [system-data-structure/{group-name}/field-name]  e.g. system-data-structure/my-group/my-field,system-data-structure/my-ungrouped-field<br/><br/>
+ * 
+ * The lookups themselves are performed by a shared, stateless {@link PageFieldResolver}.  Plug-ins which pass the
+ * asset being created share its resolved Dynamic Metadata & Structured Data through a {@link ResolvedFieldMemo}, so
+ * that the plug-ins of a factory chain walk each asset's fields only once.
  * 
  * @author Brent Arrington
  */
@@ -39,6 +42,11 @@ public abstract class StructuredDataPagePlugin extends BaseAssetFactoryPlugin
 	protected final static String METADATA_END_DATE = "end-date";
 	protected final static String METADATA_REVIEW_DATE = "review-date";
 	protected final static String METADATA_EXPIRATION_FOLDER = "expiration-folder";
+	/** Value limit meaning that all values of a multi-valued field are included */
+	protected final static int UNLIMITED_VALUES = PageFieldResolver.UNLIMITED_VALUES;
+	/** Stateless resolver all field lookups are delegated to */
+	private final static PageFieldResolver RESOLVER = new PageFieldResolver();
+	
 	/**
 	 * Searches the provided Metadata for the given wired metadata field name (stIdentifier) and
 	 * returns its value (if any).
@@ -48,70 +56,33 @@ public abstract class StructuredDataPagePlugin extends BaseAssetFactoryPlugin
 	 */
 	protected String searchWiredMetadata(Metadata metadata, String stIdentifier)
 	{
-		if (stIdentifier.contains(METADATA_TITLE))
-		{
-			return metadata.getTitle().trim();
-		}
-		else if (stIdentifier.contains(METADATA_DISPLAY_NAME))
-		{
-			return metadata.getDisplayName().trim();
-		}
-		else if (stIdentifier.contains(METADATA_DESCRIPTION))
-		{
-			return metadata.getDescription().trim();
-		}
-		else if (stIdentifier.contains(METADATA_AUTHOR))
-		{
-			return metadata.getAuthor().trim();
-		}
-		else if (stIdentifier.contains(METADATA_KEYWORDS))
-		{
-			return metadata.getKeywords().trim();
-		}
-		else if (stIdentifier.contains(METADATA_SUMMARY))
-		{
-			return metadata.getSummary().trim();
-		}
-		else if (stIdentifier.contains(METADATA_TEASER))
-		{
-			return metadata.getTeaser().trim();
-		}
-		else if (stIdentifier.contains(METADATA_START_DATE))
-		{
-			// use date format of: yyyy-mm-dd
-			Date startDate = metadata.getStartDate();
-			Calendar cal = Calendar.getInstance();
-			cal.setTime(startDate);
-			Formatter format = new Formatter();
-			String stDate = format.format("%tF", cal).toString();
-			return stDate;
-		}
-		else if (stIdentifier.contains(METADATA_END_DATE))
-		{
-			// use date format of yyyy-mm-dd
-			Date endDate = metadata.getEndDate();
-			Calendar cal = Calendar.getInstance();
-			cal.setTime(endDate);
-			Formatter format = new Formatter();
-			String stDate = format.format("%tF", cal).toString();
-			return stDate;
-		}
-		else if (stIdentifier.contains(METADATA_REVIEW_DATE))
-		{
-			// use date format of yyyy-mm-dd
-			Date reviewDate = metadata.getReviewDate();
-			Calendar cal = Calendar.getInstance();
-			cal.setTime(reviewDate);
-			Formatter format = new Formatter();
-			String stDate = format.format("%tF", cal).toString();
-			return stDate;
-		}
-		else if (stIdentifier.contains(METADATA_EXPIRATION_FOLDER))
+		return this.searchWiredMetadata(metadata, WiredMetadataField.forIdentifier(stIdentifier));
+	}
+	
+	/**
+	 * Returns the value of the given wired metadata field (if any) from the provided Metadata.
+	 * @param metadata Metadata object to be searched
+	 * @param field WiredMetadataField to read; may be null for an unknown field
+	 * @return String containing the value of the specified wired metadata field
+	 */
+	protected String searchWiredMetadata(Metadata metadata, WiredMetadataField field)
+	{
+		return RESOLVER.searchWiredMetadata(metadata, field);
+	}
+	
+	/**
+	 * Formats the provided date as <code>yyyy-mm-dd</code>.
+	 * @param date Date to be formatted
+	 * @return String containing the formatted date, or null if there is no date
+	 * @see DateFormatter
+	 */
+	static String formatDate(Date date)
+	{
+		if (date == null)
 		{
-			// not a valid field for auto-name generation
 			return null;
 		}
-		return null;
+		return DateFormatter.formatIsoDate(date.getTime());
 	}
 	
 	/**
@@ -132,159 +103,111 @@ public abstract class StructuredDataPagePlugin extends BaseAssetFactoryPlugin
 			stNodeName = stNodeName.substring(1);
 		}
 		
-		for (int i = 0; i < dynamicFields.length; i++)
-		{
-			if (dynamicFields[i].getName().equals(stNodeName))
-			{
-				
-				StringBuffer multiVal = new StringBuffer();
-            	for (int j = 0; j < dynamicFields[i].getValues().length; j++)
-            	{
-            		if (dynamicFields[i].getValues()[j] != null && dynamicFields[i].getValues()[j].trim() != "")
-            		{
-            			multiVal.append(dynamicFields[i].getValues()[j].trim());
-            			if (j < (dynamicFields[i].getValues().length - 1))
-            			{
-            				multiVal.append(" ");
-            			}
-            		}
-            		
-            	}
-            	
-            	if (multiVal.length() > 0)
-            	{
-            		return multiVal.toString();
-            	}
-			}
-		}
-		
-		return null;
+		return RESOLVER.searchDynamicMetadata(dynamicFields, stNodeName);
+	}
+	
+	/**
+	 * Searches the provided array of dynamic metadata fields for the given pre-parsed Dynamic Metadata identifier.
+	 * 
+	 * @param dynamicFields DynamicMetadataFields[] array containin all custom fields to be searched
+	 * @param field FieldIdentifier of type {@link FieldIdentifier.Type#DYNAMIC_METADATA}
+	 * @return String containing the value of the specified custom field
+	 */
+	protected String searchDynamicMetadata(DynamicMetadataField[] dynamicFields, FieldIdentifier field)
+	{
+		return RESOLVER.searchDynamicMetadata(dynamicFields, field.getDynamicFieldName());
+	}
+	
+	/**
+	 * Looks up the given pre-parsed Dynamic Metadata identifier in an index of a Page's dynamic metadata fields.
+	 * 
+	 * @param index DynamicMetadataIndex of the Page's custom fields
+	 * @param field FieldIdentifier of type {@link FieldIdentifier.Type#DYNAMIC_METADATA}
+	 * @param maxValues int maximum number of values of a multi-valued field to include
+	 * @return String containing the value of the specified custom field
+	 */
+	protected String searchDynamicMetadata(DynamicMetadataIndex index, FieldIdentifier field, int maxValues)
+	{
+		return RESOLVER.searchDynamicMetadata(index, field.getDynamicFieldName(), maxValues);
+	}
+	
+	/**
+	 * Looks up the given pre-parsed Dynamic Metadata identifier in the fields of the asset being created, reusing the
+	 * index of its fields built by any earlier plug-in in the chain.
+	 * 
+	 * @param asset FolderContainedAsset being created
+	 * @param dynamicFields DynamicMetadataFields[] array of the asset's custom fields
+	 * @param field FieldIdentifier of type {@link FieldIdentifier.Type#DYNAMIC_METADATA}
+	 * @param maxValues int maximum number of values of a multi-valued field to include
+	 * @return String containing the value of the specified custom field
+	 */
+	protected String searchDynamicMetadata(FolderContainedAsset asset, DynamicMetadataField[] dynamicFields, FieldIdentifier field, int maxValues)
+	{
+		return RESOLVER.searchDynamicMetadata(ResolvedFieldMemo.forAsset(asset).getDynamicMetadataIndex(dynamicFields), field.getDynamicFieldName(), maxValues);
+	}
+	
+	/**
+	 * @see PageFieldResolver#joinDynamicMetadataValues(DynamicMetadataField, int)
+	 */
+	protected String joinDynamicMetadataValues(DynamicMetadataField field, int maxValues)
+	{
+		return RESOLVER.joinDynamicMetadataValues(field, maxValues);
 	}
 	
 	/**
 	 * Checks for the presence of <code>"system-data-strucure"</code> token in <code>sdIdentifier</code> & strips this out prior
-	 * to passing along to <code>super.searchStructuredData(structuredData,sdIdentifier)</code>
+	 * to searching <code>structuredData</code> for the identified field.
 	 * @see StructuredDataPlugin
 	 */
     protected String searchStructuredData(StructuredDataNode[] structuredData, String sdIdentifier)
     {
-		if (sdIdentifier.contains(STRUCTURED_DATA_TOKEN))
-		{
-			int startIndex = sdIdentifier.indexOf(STRUCTURED_DATA_TOKEN) + STRUCTURED_DATA_TOKEN.length();
-			sdIdentifier = sdIdentifier.substring(startIndex);
-		}
-    	
-        if (sdIdentifier.startsWith("/"))
-            sdIdentifier = sdIdentifier.substring(1);
+        return RESOLVER.searchStructuredData(structuredData, FieldIdentifier.parseStructuredDataPath(sdIdentifier), 0);
+    }
 
-        if (sdIdentifier.contains("/"))
-        {
-            String[] nodePath = sdIdentifier.split("/");
-            String curNode = nodePath[0];
-            String subNodes = "";
-            for (int i = 1; i < nodePath.length; i++)
-            {
-                subNodes += nodePath[i] + (i != nodePath.length - 1 ? "/" : "");
-            }
+    /**
+     * @see PageFieldResolver#searchStructuredData(StructuredDataNode[], String[], int)
+     */
+    protected String searchStructuredData(StructuredDataNode[] structuredData, String[] path, int depth)
+    {
+        return RESOLVER.searchStructuredData(structuredData, path, depth);
+    }
 
-            for (StructuredDataNode node : structuredData)
-            {
-                if (node.isGroup() && curNode.equals(node.getIdentifier()))
-                {
-                    String value = searchStructuredData(node.getGroup(), subNodes);
-                    if (value != null)
-                    {
-                        return value;
-                    }
-                }
-            }
-        }
-        else
-        {
-            for (StructuredDataNode node : structuredData)
-            {
-                if (node.isGroup())
-                {
-                    String value = searchStructuredData(node.getGroup(), sdIdentifier);
-                    if (value != null)
-                    {
-                        return value;
-                    }
-                }
-                else if (sdIdentifier.equals(node.getIdentifier()) && node.isText())
-                {
-                    String[] nodeValues = node.getTextValues();
-                    String nodeValue = null;
-                    if (nodeValues.length > 0 && nodeValues[0] != null && nodeValues[0].trim() != "")
-                    {
-                        nodeValue = nodeValues[0];
-                        
-                        // for date/time & calendar, return formatted date string, i.e. yyyy-mm-dd
-                        if (node.getTextNodeOptions().isDatetime())
-                        {
-                        	Date date = new Date(Long.valueOf(nodeValue).longValue());
-                			Calendar cal = Calendar.getInstance();
-                			cal.setTime(date);
-                			Formatter format = new Formatter();
-                			String stDate = format.format("%tF", cal).toString();
-                			return stDate;                  	
-                        }
-                        else if (node.getTextNodeOptions().isCalendar())
-                        {
-                        	try
-                        	{
-                        		String[] dateParts = nodeValue.split("-");
-                        		int month = Integer.parseInt(dateParts[0]) - 1; // because month is zero-based
-                        		int day = Integer.parseInt(dateParts[1]);
-                        		int year = Integer.parseInt(dateParts[2]);
-                        		
-                    			Calendar cal = Calendar.getInstance();
-                    			cal.set(year, month, day);
-                    			Formatter format = new Formatter();
-                    			String stDate = format.format("%tF", cal).toString();
-                    			return stDate;  
-                        	}
-                        	catch (Exception e)
-                        	{
-                        		return null;
-                        	}
-                        	
-                        }
-                        // for check-box & multi-select (where multiple values are allowed), concatenate all selected values
-                        else if (node.getTextNodeOptions().isCheckbox() || node.getTextNodeOptions().isMultiselect())
-                        {
-                        	StringBuffer multiVal = new StringBuffer();
-                        	for (int i = 0; i < nodeValues.length; i++)
-                        	{
-                        		if (nodeValues[i] != null && nodeValues[i].trim() != "")
-                        		{
-                        			multiVal.append(nodeValues[i].trim());
-                        			if (i < (nodeValues.length - 1))
-                        			{
-                        				multiVal.append(" ");
-                        			}
-                        		}
-                        		
-                        	}
-                        	
-                        	if (multiVal.length() > 0)
-                        	{
-                        		return multiVal.toString();
-                        	}
-                        }
-                        else if (!(node.getTextNodeOptions().isWysiwyg()))
-                        {
-                        	return nodeValue;
-                        }
-                    }
-                    
+    /**
+     * @see PageFieldResolver#searchStructuredData(StructuredDataIndex, String[])
+     */
+    protected String searchStructuredData(StructuredDataIndex index, String[] path)
+    {
+        return RESOLVER.searchStructuredData(index, path);
+    }
 
+    /**
+     * Looks up the given pre-parsed Structured Data identifier in the fields of the asset being created, reusing the
+     * index of its nodes built by any earlier plug-in in the chain.
+     * @param asset FolderContainedAsset being created
+     * @param structuredData StructuredDataNode[] array of the asset's top-level nodes
+     * @param field FieldIdentifier of type {@link FieldIdentifier.Type#STRUCTURED_DATA}
+     * @return String containing the value of the specified field
+     */
+    protected String searchStructuredData(FolderContainedAsset asset, StructuredDataNode[] structuredData, FieldIdentifier field)
+    {
+        return RESOLVER.searchStructuredData(ResolvedFieldMemo.forAsset(asset).getStructuredDataIndex(structuredData), field.getStructuredDataPath());
+    }
 
-                }
+    /**
+     * Discards the fields resolved for the given asset, e.g. as a new request for it starts.
+     * @see ResolvedFieldMemo#discard(FolderContainedAsset)
+     */
+    protected static void discardResolvedFields(FolderContainedAsset asset)
+    {
+        ResolvedFieldMemo.discard(asset);
+    }
 
-            }
-        }
-        return null;
+    /**
+     * @see PageFieldResolver#readTextNode(StructuredDataNode)
+     */
+    protected String readTextNode(StructuredDataNode node)
+    {
+        return RESOLVER.readTextNode(node);
     }
 
 }
\ No newline at end of file
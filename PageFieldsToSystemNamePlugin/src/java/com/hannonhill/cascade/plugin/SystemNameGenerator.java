@@ -0,0 +1,358 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.Metadata;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.asset.home.FolderContainedAsset;
+import com.hannonhill.cascade.api.util.FilenameNormalizer;
+
+/**
+ * Generates URL-safe system names from Page Field values, independently of <code>BaseAssetFactoryPlugin</code>.
+ * A generator is configured once with the Field IDs (or a Name Template), Space & Concatenation Tokens and a
+ * normalizer, and then turns
+ * a page's Metadata, Dynamic Metadata & Structured Data into a {@link SystemNameResult}.<br/><br/>
+ *
+ * Generators are immutable and keep no per-page state, so one instance may be used by any number of threads at once,
+ * inside or outside of Cascade.  Making names unique within a folder is left to the caller.
+ *
+ * @see PageFieldsToSystemNamePlugin
+ */
+public final class SystemNameGenerator
+{
+	private static final PageFieldResolver RESOLVER = new PageFieldResolver();
+
+	private final NamingPlan plan;
+	private final FastFilenameNormalizer normalizer;
+	private final FragmentCache fragmentCache;
+
+	/**
+	 * @param stFieldIds String comma-delimited list of field identifiers; must not be blank
+	 * @param stSpaceToken String token to replace spaces with, or null for the default (<code>-</code>)
+	 * @param stConcatToken String token to join values with, or null for the default (<code>-</code>)
+	 * @param normalizer FilenameNormalizer used to make each value URL-safe
+	 */
+	public SystemNameGenerator(String stFieldIds, String stSpaceToken, String stConcatToken, FilenameNormalizer normalizer)
+	{
+		this(NamingPlan.forParameters(planParameters(stFieldIds, stSpaceToken, stConcatToken)), normalizer);
+	}
+
+	/**
+	 * @param plan NamingPlan to generate names with
+	 * @param normalizer FilenameNormalizer used to make each value URL-safe
+	 */
+	SystemNameGenerator(NamingPlan plan, FilenameNormalizer normalizer)
+	{
+		this.plan = plan;
+		this.normalizer = FastFilenameNormalizer.forDelegate(normalizer);
+		this.fragmentCache = plan.getFragmentCache(this.normalizer.getDelegateClass());
+	}
+
+	private static String[] planParameters(String stFieldIds, String stSpaceToken, String stConcatToken)
+	{
+		if (stFieldIds == null || stFieldIds.trim().equals(""))
+		{
+			throw new IllegalArgumentException("Field IDs are required.");
+		}
+		String[] parameters = new String[NamingPlan.PARAMETER_COUNT];
+		parameters[NamingPlan.FIELD_IDS] = stFieldIds;
+		parameters[NamingPlan.SPACE_TOKEN] = stSpaceToken;
+		parameters[NamingPlan.CONCAT_TOKEN] = stConcatToken;
+		return parameters;
+	}
+
+	/**
+	 * @return true if any of the configured fields are Dynamic Metadata fields, i.e. if {@link #generate} needs the
+	 * page's Dynamic Metadata
+	 */
+	public boolean usesDynamicMetadata()
+	{
+		return plan.hasDynamicMetadataFields();
+	}
+
+	/**
+	 * @return true if any of the configured fields are Structured Data fields, i.e. if {@link #generate} needs the
+	 * page's Structured Data
+	 */
+	public boolean usesStructuredData()
+	{
+		return plan.hasStructuredDataFields();
+	}
+
+	/**
+	 * Checks the configured Structured Data fields against a page of the intended Data Definition, e.g. an asset
+	 * factory's base asset, and learns their positions so that later pages can be read directly.
+	 * @param structuredData StructuredDataNode[] array of the page's top-level nodes
+	 * @return the identifiers of all configured fields which do not exist in the Data Definition, in field order;
+	 * empty if they all exist
+	 */
+	public List<String> findMissingStructuredDataFields(StructuredDataNode[] structuredData)
+	{
+		return findMissingStructuredDataFields(plan, structuredData);
+	}
+
+	/**
+	 * @see #findMissingStructuredDataFields(StructuredDataNode[])
+	 */
+	static List<String> findMissingStructuredDataFields(NamingPlan plan, StructuredDataNode[] structuredData)
+	{
+		StructuredDataAccessor[] accessors = plan.getStructuredDataAccessors(structuredData);
+		List<String> missing = Collections.emptyList();
+		for (int i = 0; i < accessors.length; i++)
+		{
+			if (accessors[i] == StructuredDataAccessor.NOT_FOUND)
+			{
+				if (missing.isEmpty())
+				{
+					missing = new ArrayList<String>(accessors.length - i);
+				}
+				missing.add(plan.getFields().get(i).getIdentifier());
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Generates the system name for a page.
+	 * @param metadata Metadata of the page; only read if Wired Metadata fields are configured
+	 * @param dynamicFields DynamicMetadataField[] array of the page's Dynamic Metadata; only read if
+	 * {@link #usesDynamicMetadata()}
+	 * @param structuredData StructuredDataNode[] array of the page's Structured Data; only read if
+	 * {@link #usesStructuredData()}
+	 * @return the generated name, or the reason there is none
+	 */
+	public SystemNameResult generate(Metadata metadata, DynamicMetadataField[] dynamicFields, StructuredDataNode[] structuredData)
+	{
+		return generate(metadata, dynamicFields, structuredData, null);
+	}
+
+	/**
+	 * Generates the system name for an asset being created, sharing its resolved fields with the other plug-ins of
+	 * the factory chain.
+	 * @param asset FolderContainedAsset the fields belong to, or null if they are not to be shared
+	 * @see #generate(Metadata, DynamicMetadataField[], StructuredDataNode[])
+	 * @see ResolvedFieldMemo
+	 */
+	SystemNameResult generate(Metadata metadata, DynamicMetadataField[] dynamicFields, StructuredDataNode[] structuredData, FolderContainedAsset asset)
+	{
+		if (!NamingStatistics.collecting())
+		{
+			return generateName(metadata, dynamicFields, structuredData, asset, false);
+		}
+		long start = System.nanoTime();
+		SystemNameResult result = generateName(metadata, dynamicFields, structuredData, asset, true);
+		NamingStatistics.record(NamingStatistics.Stage.ASSEMBLY, start);
+		NamingStatistics.record(result);
+		return result;
+	}
+
+	/**
+	 * Resolves every configured field, collecting all problems rather than stopping at the first, so that one
+	 * submission reports every field which needs attention.  Once a problem is found, values are still resolved but
+	 * no longer normalized.
+	 * @param asset FolderContainedAsset whose resolved fields are shared through its {@link ResolvedFieldMemo}, or null
+	 * @param timed boolean true if the latency of each stage is to be recorded in the {@link NamingStatistics}
+	 */
+	private SystemNameResult generateName(Metadata metadata, DynamicMetadataField[] dynamicFields, StructuredDataNode[] structuredData, FolderContainedAsset asset, boolean timed)
+	{
+		// once the name reaches the Maximum Name Length, remaining values are resolved & validated, but not normalized
+		SlugBuilder newName = new SlugBuilder(normalizer, plan.getSpaceToken(), plan.getConcatToken(), fragmentCache, plan.getMaxLength());
+		// built on first use, so that all structured data fields are resolved from a single traversal
+		StructuredDataIndex structuredDataIndex = null;
+		StructuredDataAccessor[] structuredDataAccessors = null;
+		DynamicMetadataIndex dynamicMetadataIndex = null;
+		// allocated with the first problem, so that valid pages pay nothing for validation
+		List<SystemNameResult.Problem> problems = null;
+		List<FieldIdentifier> fields = plan.getFields();
+		// a Name Template is evaluated once all of its values are resolved; Field IDs values are appended as resolved
+		NameTemplate template = plan.getTemplate();
+		String[] templateValues = template == null ? null : new String[fields.size()];
+		// the selected values of check-box & multi-select fields are joined here, and normalized straight from it
+		StringBuilder joinedValues = null;
+		// dates are formatted straight into the name, unless their text is needed first
+		SlugBuilder dateName = template == null ? newName : null;
+
+		// iterate through specified fields & use derived values to build name string
+		// if any of the specified fields contain null or empty values, no name is generated
+		for (int i = 0; i < fields.size(); i++)
+		{
+			FieldIdentifier field = fields.get(i);
+			long start = timed ? System.nanoTime() : 0;
+			CharSequence stNodeVal = null;
+			SystemNameResult.Failure failure = null;
+			// determine what type of field we are dealing with
+			switch (field.getType())
+			{
+			case DYNAMIC_METADATA:
+				// dynamic metadata fields
+				if (dynamicFields == null)
+				{
+					failure = SystemNameResult.Failure.NO_DYNAMIC_METADATA;
+					break;
+				}
+				if (dynamicMetadataIndex == null)
+				{
+					dynamicMetadataIndex = asset == null ? new DynamicMetadataIndex(dynamicFields) : ResolvedFieldMemo.forAsset(asset).getDynamicMetadataIndex(dynamicFields);
+				}
+				stNodeVal = RESOLVER.searchDynamicMetadata(dynamicMetadataIndex, field.getDynamicFieldName(), plan.getMaxValues(), plan.getMaxValueLength());
+				if (stNodeVal == null || PageFieldResolver.isBlank(stNodeVal))
+				{
+					failure = SystemNameResult.Failure.EMPTY_DYNAMIC_METADATA;
+				}
+				break;
+
+			case STRUCTURED_DATA:
+				// structured data (data definition) fields
+				if (structuredData == null)
+				{
+					failure = SystemNameResult.Failure.NO_STRUCTURED_DATA;
+					break;
+				}
+				if (structuredDataAccessors == null)
+				{
+					structuredDataAccessors = plan.getStructuredDataAccessors(structuredData);
+				}
+				// read directly by position when the page has the shape the accessor was learned from
+				StructuredDataAccessor accessor = structuredDataAccessors[i];
+				StructuredDataNode node = accessor == null ? null : accessor.locate(structuredData);
+				if (node != null)
+				{
+					stNodeVal = RESOLVER.readTextNode(node, joinedValues, plan.getMaxValues(), plan.getMaxValueLength(), problems == null ? dateName : null);
+				}
+				else
+				{
+					if (structuredDataIndex == null)
+					{
+						structuredDataIndex = asset == null ? new StructuredDataIndex(structuredData) : ResolvedFieldMemo.forAsset(asset).getStructuredDataIndex(structuredData);
+					}
+					stNodeVal = RESOLVER.searchStructuredData(structuredDataIndex, field.getStructuredDataPath(), joinedValues, plan.getMaxValues(), plan.getMaxValueLength(), problems == null ? dateName : null);
+				}
+				if (stNodeVal instanceof StringBuilder)
+				{
+					// reused for later fields once these values have been appended
+					joinedValues = (StringBuilder)stNodeVal;
+				}
+				if (stNodeVal == null || PageFieldResolver.isBlank(stNodeVal))
+				{
+					failure = SystemNameResult.Failure.EMPTY_STRUCTURED_DATA;
+				}
+				break;
+
+			default:
+				// wired metadata fields
+				if (field.getWiredField() == null)
+				{
+					failure = SystemNameResult.Failure.UNKNOWN_WIRED_METADATA;
+					break;
+				}
+				if (field.getWiredField().isDate() && dateName != null && problems == null)
+				{
+					Date date = field.getWiredField().readDate(metadata);
+					if (date != null)
+					{
+						dateName.appendIsoDate(date.getTime());
+						stNodeVal = PageFieldResolver.DATE_APPENDED;
+					}
+				}
+				else
+				{
+					stNodeVal = RESOLVER.searchWiredMetadata(metadata, field.getWiredField());
+				}
+				if (stNodeVal == null || PageFieldResolver.isBlank(stNodeVal))
+				{
+					failure = SystemNameResult.Failure.EMPTY_WIRED_METADATA;
+				}
+				break;
+			}
+
+			if (failure != null)
+			{
+				if (problems == null)
+				{
+					problems = new ArrayList<SystemNameResult.Problem>(fields.size() - i);
+				}
+				// a field listed more than once fails the same way each time, so it is only reported once
+				if (!isReported(problems, field.getIdentifier()))
+				{
+					problems.add(new SystemNameResult.Problem(failure, field.getIdentifier()));
+				}
+				continue;
+			}
+			if (timed)
+			{
+				NamingStatistics.record(NamingStatistics.Stage.LOOKUP, start);
+			}
+			if (problems != null)
+			{
+				// no name will be generated, so there is nothing to normalize
+				continue;
+			}
+			if (template != null)
+			{
+				templateValues[i] = stNodeVal.toString();
+				continue;
+			}
+			if (stNodeVal == PageFieldResolver.DATE_APPENDED)
+			{
+				// already formatted into the name while being resolved
+				continue;
+			}
+
+			// normalize for URL-safe system name, replace spaces with space token & append concatenation token
+			if (timed)
+			{
+				start = System.nanoTime();
+				newName.append(stNodeVal);
+				NamingStatistics.record(NamingStatistics.Stage.NORMALIZATION, start);
+			}
+			else
+			{
+				newName.append(stNodeVal);
+			}
+		}
+
+		if (problems != null)
+		{
+			return SystemNameResult.failure(problems);
+		}
+		String stNewName;
+		if (template != null)
+		{
+			long start = timed ? System.nanoTime() : 0;
+			template.appendTo(newName, templateValues);
+			if (timed)
+			{
+				NamingStatistics.record(NamingStatistics.Stage.NORMALIZATION, start);
+			}
+			stNewName = newName.buildAsIs();
+		}
+		else
+		{
+			stNewName = newName.build();
+		}
+		if (stNewName.trim().equals(""))
+		{
+			return SystemNameResult.failure(SystemNameResult.Failure.EMPTY_NAME, plan.getNameSource());
+		}
+		return SystemNameResult.success(stNewName);
+	}
+
+	/**
+	 * @return true if a problem has already been found with the given field identifier
+	 */
+	private static boolean isReported(List<SystemNameResult.Problem> problems, String stIdentifier)
+	{
+		for (SystemNameResult.Problem problem : problems)
+		{
+			if (problem.getIdentifier().equals(stIdentifier))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
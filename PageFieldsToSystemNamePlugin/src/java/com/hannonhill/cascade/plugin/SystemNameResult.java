@@ -0,0 +1,204 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of generating a system name with a {@link SystemNameGenerator}:  either the name, or every problem
+ * which prevented one from being generated, each with the field identifier responsible.  Results are immutable.
+ */
+public final class SystemNameResult
+{
+	/**
+	 * The reasons a system name may not be generated.
+	 */
+	public enum Failure
+	{
+		/** A Dynamic Metadata field is configured, but the page has no Dynamic Metadata */
+		NO_DYNAMIC_METADATA,
+		/** A Structured Data field is configured, but the page has no Structured Data */
+		NO_STRUCTURED_DATA,
+		/** A field identifier names no Wired Metadata field (and no other kind of field) */
+		UNKNOWN_WIRED_METADATA,
+		/** A Wired Metadata field has no value */
+		EMPTY_WIRED_METADATA,
+		/** A Dynamic Metadata field does not exist or has no value */
+		EMPTY_DYNAMIC_METADATA,
+		/** A Structured Data field does not exist or has no value */
+		EMPTY_STRUCTURED_DATA,
+		/** All fields have values, but nothing is left of them once normalized */
+		EMPTY_NAME
+	}
+
+	/**
+	 * One reason a system name could not be generated, and the field identifier responsible.
+	 */
+	public static final class Problem
+	{
+		private final Failure failure;
+		private final String identifier;
+
+		Problem(Failure failure, String identifier)
+		{
+			this.failure = failure;
+			this.identifier = identifier;
+		}
+
+		/**
+		 * @return the reason
+		 */
+		public Failure getFailure()
+		{
+			return failure;
+		}
+
+		/**
+		 * @return the identifier of the field responsible, or for {@link Failure#EMPTY_NAME} the Field IDs
+		 */
+		public String getIdentifier()
+		{
+			return identifier;
+		}
+
+		/**
+		 * @return a message describing the problem, suitable for the user creating the page
+		 */
+		public String getMessage()
+		{
+			switch (failure)
+			{
+			case NO_DYNAMIC_METADATA:
+				return "This page contains no Dynamic Metadata Fiels, therefore '" + identifier + "' is an invalid field identifier.";
+			case NO_STRUCTURED_DATA:
+				return "This Page contains no Structured Data, therefore '" + identifier + "' is an invalid field identifier.";
+			case UNKNOWN_WIRED_METADATA:
+			case EMPTY_WIRED_METADATA:
+				return "The wired metadata field '" + identifier + "' either does not exist or contains no value in the asset being created.";
+			case EMPTY_DYNAMIC_METADATA:
+				return "The dynamic metadata field '" + identifier + "' either does not exist or contains no value in the asset being created.";
+			case EMPTY_STRUCTURED_DATA:
+				return "The structured data field '" + identifier + "' either does not exist or contains no value in the asset being created.";
+			default:
+				return "None of the following fields are populated: " + identifier;
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return failure + ": " + identifier;
+		}
+	}
+
+	private final String name;
+	private final List<Problem> problems;
+
+	private SystemNameResult(String name, List<Problem> problems)
+	{
+		this.name = name;
+		this.problems = problems;
+	}
+
+	/**
+	 * @param stName String generated system name
+	 * @return a successful result
+	 */
+	static SystemNameResult success(String stName)
+	{
+		return new SystemNameResult(stName, Collections.<Problem>emptyList());
+	}
+
+	/**
+	 * @param problems List of every Problem found, in field order; must not be empty
+	 * @return a failed result
+	 */
+	static SystemNameResult failure(List<Problem> problems)
+	{
+		return new SystemNameResult(null, Collections.unmodifiableList(problems));
+	}
+
+	/**
+	 * @param failure Failure reason
+	 * @param stIdentifier String field identifier responsible, or for {@link Failure#EMPTY_NAME} the Field IDs
+	 * @return a failed result with a single problem
+	 */
+	static SystemNameResult failure(Failure failure, String stIdentifier)
+	{
+		return new SystemNameResult(null, Collections.singletonList(new Problem(failure, stIdentifier)));
+	}
+
+	/**
+	 * @return true if a name was generated
+	 */
+	public boolean isSuccess()
+	{
+		return problems.isEmpty();
+	}
+
+	/**
+	 * @return the generated system name, or null if none could be generated
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return every problem which prevented a name from being generated, in field order & one per distinct field
+	 * identifier; empty if a name was generated
+	 */
+	public List<Problem> getProblems()
+	{
+		return problems;
+	}
+
+	/**
+	 * @return the reason of the first problem, or null if a name was generated
+	 */
+	public Failure getFailure()
+	{
+		return problems.isEmpty() ? null : problems.get(0).getFailure();
+	}
+
+	/**
+	 * @return the identifier of the field responsible for the first problem, or null if a name was generated
+	 */
+	public String getIdentifier()
+	{
+		return problems.isEmpty() ? null : problems.get(0).getIdentifier();
+	}
+
+	/**
+	 * @return a message describing every problem, suitable for the user creating the page, or null if a name was
+	 * generated
+	 */
+	public String getMessage()
+	{
+		if (problems.isEmpty())
+		{
+			return null;
+		}
+		if (problems.size() == 1)
+		{
+			return problems.get(0).getMessage();
+		}
+		StringBuilder message = new StringBuilder(160 * problems.size());
+		message.append("The following fields cannot be used: ");
+		for (int i = 0; i < problems.size(); i++)
+		{
+			message.append(i == 0 ? "" : ", ").append(problems.get(i).getIdentifier());
+		}
+		message.append('.');
+		for (Problem problem : problems)
+		{
+			message.append(' ').append(problem.getMessage());
+		}
+		return message.toString();
+	}
+
+	@Override
+	public String toString()
+	{
+		return isSuccess() ? name : problems.toString();
+	}
+}
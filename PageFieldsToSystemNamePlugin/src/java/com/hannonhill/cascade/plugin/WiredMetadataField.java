@@ -0,0 +1,165 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.Date;
+
+import com.hannonhill.cascade.api.asset.common.Metadata;
+
+/**
+ * The Wired Metadata fields which may be used as the source of a system name.  Each constant knows how to
+ * read its own value from a Metadata object, so that a field identifier only has to be classified once.
+ */
+public enum WiredMetadataField
+{
+	TITLE(StructuredDataPagePlugin.METADATA_TITLE)
+	{
+		String read(Metadata metadata)
+		{
+			return metadata.getTitle().trim();
+		}
+	},
+	DISPLAY_NAME(StructuredDataPagePlugin.METADATA_DISPLAY_NAME)
+	{
+		String read(Metadata metadata)
+		{
+			return metadata.getDisplayName().trim();
+		}
+	},
+	DESCRIPTION(StructuredDataPagePlugin.METADATA_DESCRIPTION)
+	{
+		String read(Metadata metadata)
+		{
+			return metadata.getDescription().trim();
+		}
+	},
+	AUTHOR(StructuredDataPagePlugin.METADATA_AUTHOR)
+	{
+		String read(Metadata metadata)
+		{
+			return metadata.getAuthor().trim();
+		}
+	},
+	KEYWORDS(StructuredDataPagePlugin.METADATA_KEYWORDS)
+	{
+		String read(Metadata metadata)
+		{
+			return metadata.getKeywords().trim();
+		}
+	},
+	SUMMARY(StructuredDataPagePlugin.METADATA_SUMMARY)
+	{
+		String read(Metadata metadata)
+		{
+			return metadata.getSummary().trim();
+		}
+	},
+	TEASER(StructuredDataPagePlugin.METADATA_TEASER)
+	{
+		String read(Metadata metadata)
+		{
+			return metadata.getTeaser().trim();
+		}
+	},
+	START_DATE(StructuredDataPagePlugin.METADATA_START_DATE)
+	{
+		String read(Metadata metadata)
+		{
+			return StructuredDataPagePlugin.formatDate(readDate(metadata));
+		}
+
+		Date readDate(Metadata metadata)
+		{
+			return metadata.getStartDate();
+		}
+	},
+	END_DATE(StructuredDataPagePlugin.METADATA_END_DATE)
+	{
+		String read(Metadata metadata)
+		{
+			return StructuredDataPagePlugin.formatDate(readDate(metadata));
+		}
+
+		Date readDate(Metadata metadata)
+		{
+			return metadata.getEndDate();
+		}
+	},
+	REVIEW_DATE(StructuredDataPagePlugin.METADATA_REVIEW_DATE)
+	{
+		String read(Metadata metadata)
+		{
+			return StructuredDataPagePlugin.formatDate(readDate(metadata));
+		}
+
+		Date readDate(Metadata metadata)
+		{
+			return metadata.getReviewDate();
+		}
+	},
+	EXPIRATION_FOLDER(StructuredDataPagePlugin.METADATA_EXPIRATION_FOLDER)
+	{
+		String read(Metadata metadata)
+		{
+			// not a valid field for auto-name generation
+			return null;
+		}
+	};
+
+	private final String fieldName;
+
+	private WiredMetadataField(String fieldName)
+	{
+		this.fieldName = fieldName;
+	}
+
+	/**
+	 * @return the wired metadata field name, e.g. <code>"display-name"</code>
+	 */
+	public String getFieldName()
+	{
+		return fieldName;
+	}
+
+	/**
+	 * Reads the value of this field from the provided Metadata.
+	 * @param metadata Metadata object to be read
+	 * @return String containing the value of this field, or null if the field cannot be used for naming
+	 */
+	abstract String read(Metadata metadata);
+
+	/**
+	 * Reads the value of this field from the provided Metadata, unformatted, if this is a date field.
+	 * @param metadata Metadata object to be read
+	 * @return the date, or null if there is none or this is not a date field
+	 * @see #isDate()
+	 */
+	Date readDate(Metadata metadata)
+	{
+		return null;
+	}
+
+	/**
+	 * @return true if this is a date field, whose value is formatted as <code>yyyy-mm-dd</code>
+	 */
+	boolean isDate()
+	{
+		return this == START_DATE || this == END_DATE || this == REVIEW_DATE;
+	}
+
+	/**
+	 * Classifies the given field identifier.  Identifiers are matched in declaration order on the first
+	 * field name they contain, e.g. <code>"page-title"</code> resolves to {@link #TITLE}.
+	 * @param stIdentifier String indicating the specific metadata field name
+	 * @return the matching field, or null if the identifier does not name a wired metadata field
+	 */
+	public static WiredMetadataField forIdentifier(String stIdentifier)
+	{
+		for (WiredMetadataField field : values())
+		{
+			if (stIdentifier.contains(field.fieldName))
+			{
+				return field;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,387 @@
+package com.hannonhill.cascade.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+
+/**
+ * Command-line tool which previews the system names PageFieldsToSystemNamePlugin would generate for the pages of
+ * an exported site, without a running Cascade instance.  Export files (XML in the <code>system-page</code> format)
+ * are streamed with a StAX parser, so no document is ever held in memory as a whole.<br/><br/>
+ *
+ * Writes a CSV file with one row per page:  the page's path, its proposed name, the paths of the other pages in the
+ * same folder which would be given the same name, and the reason no name could be generated, if any.  Pages are
+ * grouped into folders by their enclosing <code>system-folder</code> element, whose rows are written at its end tag,
+ * so that only the pages of the folders being read are held in memory.  Pages outside of any are grouped by their
+ * parent path, wherever they appear in the export files, and written once every file has been read.<br/><br/>
+ *
+ * The export does not tell Date/Time & Calendar fields from plain text fields, so any used in the name must be
+ * listed with <code>-datetime</code> & <code>-calendar</code> (as Structured Data Field IDs) to be formatted as
+ * dates.<br/><br/>
+ *
+ * Usage:  <code>ExportNamePreview (-fields &lt;Field IDs&gt; | -template &lt;Name Template&gt;) [-space &lt;token&gt;]
+ * [-concat &lt;token&gt;] [-maxvalues &lt;n&gt;] [-maxlength &lt;n&gt;]
+ * [-maxvaluelength &lt;n&gt;] [-datetime &lt;Field IDs&gt;] [-calendar &lt;Field IDs&gt;] [-out &lt;file.csv&gt;]
+ * &lt;export.xml&gt;...</code>
+ *
+ * @see ExportedPage
+ */
+public final class ExportNamePreview
+{
+	private static final String FOLDER_ELEMENT = "system-folder";
+	private static final String USAGE = "Usage: ExportNamePreview (-fields <Field IDs> | -template <Name Template>) [-space <token>] [-concat <token>] [-maxvalues <n>] [-maxlength <n>] [-maxvaluelength <n>] [-datetime <Field IDs>] [-calendar <Field IDs>] [-out <file.csv>] <export.xml>...";
+
+	private final SystemNameGenerator generator;
+	private final Map<String, String> dateFieldTypes;
+	private final Writer out;
+	/** The pages of each enclosing system-folder, innermost last */
+	private final LinkedList<FolderRows> openFolders = new LinkedList<FolderRows>();
+	/** The pages outside of any system-folder, by parent path, in the order the paths were first seen */
+	private final Map<String, FolderRows> looseFolders = new LinkedHashMap<String, FolderRows>();
+
+	/**
+	 * @param dateFieldTypes Map of the path of each Date/Time & Calendar Structured Data field to its type, as
+	 * described by {@link ExportedPage#read(XMLStreamReader, Map)}
+	 */
+	ExportNamePreview(SystemNameGenerator generator, Map<String, String> dateFieldTypes, Writer out)
+	{
+		this.generator = generator;
+		this.dateFieldTypes = dateFieldTypes;
+		this.out = out;
+	}
+
+	/**
+	 * @param args String[] command-line arguments; see the class description
+	 */
+	public static void main(String[] args)
+	{
+		String[] parameters = new String[NamingPlan.PARAMETER_COUNT];
+		String stOut = null;
+		Map<String, String> dateFieldTypes = new HashMap<String, String>();
+		List<String> files = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++)
+		{
+			String arg = args[i];
+			boolean hasValue = i + 1 < args.length;
+			if (arg.equals("-fields") && hasValue)
+			{
+				parameters[NamingPlan.FIELD_IDS] = args[++i];
+			}
+			else if (arg.equals("-template") && hasValue)
+			{
+				parameters[NamingPlan.TEMPLATE] = args[++i];
+			}
+			else if (arg.equals("-space") && hasValue)
+			{
+				parameters[NamingPlan.SPACE_TOKEN] = args[++i];
+			}
+			else if (arg.equals("-concat") && hasValue)
+			{
+				parameters[NamingPlan.CONCAT_TOKEN] = args[++i];
+			}
+			else if (arg.equals("-maxvalues") && hasValue)
+			{
+				parameters[NamingPlan.MAX_VALUES] = args[++i];
+			}
+			else if (arg.equals("-maxlength") && hasValue)
+			{
+				parameters[NamingPlan.MAX_LENGTH] = args[++i];
+			}
+			else if (arg.equals("-maxvaluelength") && hasValue)
+			{
+				parameters[NamingPlan.MAX_VALUE_LENGTH] = args[++i];
+			}
+			else if (arg.equals("-datetime") && hasValue)
+			{
+				addDateFields(dateFieldTypes, args[++i], ExportedPage.DATETIME);
+			}
+			else if (arg.equals("-calendar") && hasValue)
+			{
+				addDateFields(dateFieldTypes, args[++i], ExportedPage.CALENDAR);
+			}
+			else if (arg.equals("-out") && hasValue)
+			{
+				stOut = args[++i];
+			}
+			else if (arg.startsWith("-"))
+			{
+				exit(USAGE);
+			}
+			else
+			{
+				files.add(arg);
+			}
+		}
+		if ((isBlank(parameters[NamingPlan.FIELD_IDS]) && isBlank(parameters[NamingPlan.TEMPLATE])) || files.isEmpty())
+		{
+			exit(USAGE);
+		}
+
+		SystemNameGenerator generator = null;
+		try
+		{
+			generator = new SystemNameGenerator(NamingPlan.forParameters(parameters), FastFilenameNormalizer.withDefaultTable(new OfflineFilenameNormalizer()));
+		}
+		catch (IllegalArgumentException e)
+		{
+			exit(e.getMessage());
+		}
+
+		Writer out = null;
+		try
+		{
+			out = new BufferedWriter(stOut == null ? new OutputStreamWriter(System.out, "UTF-8") : new OutputStreamWriter(new FileOutputStream(stOut), "UTF-8"));
+			ExportNamePreview preview = new ExportNamePreview(generator, Collections.unmodifiableMap(dateFieldTypes), out);
+			preview.writeHeader();
+			for (String file : files)
+			{
+				InputStream in = new BufferedInputStream(new FileInputStream(file));
+				try
+				{
+					preview.preview(in);
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+			preview.finish();
+			out.flush();
+		}
+		catch (IOException e)
+		{
+			exit("ExportNamePreview: " + e.getMessage());
+		}
+		catch (XMLStreamException e)
+		{
+			exit("ExportNamePreview: " + e.getMessage());
+		}
+		finally
+		{
+			if (stOut != null && out != null)
+			{
+				try
+				{
+					out.close();
+				}
+				catch (IOException e)
+				{
+					// nothing more can be done
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the type of each of a comma-delimited list of Structured Data Field IDs, exiting if any is not a
+	 * Structured Data Field ID or has already been given another type.
+	 */
+	private static void addDateFields(Map<String, String> dateFieldTypes, String stFieldIds, String stType)
+	{
+		for (String stIdentifier : stFieldIds.split(","))
+		{
+			FieldIdentifier field = FieldIdentifier.compile(stIdentifier.trim());
+			if (field.getType() != FieldIdentifier.Type.STRUCTURED_DATA)
+			{
+				exit("ExportNamePreview: -" + stType + " takes Structured Data Field IDs (" + StructuredDataPagePlugin.STRUCTURED_DATA_TOKEN + "/...), not '" + stIdentifier.trim() + "'.");
+			}
+			StringBuilder path = new StringBuilder();
+			for (String segment : field.getStructuredDataPath())
+			{
+				path.append(path.length() == 0 ? "" : "/").append(segment);
+			}
+			String previous = dateFieldTypes.put(path.toString(), stType);
+			if (previous != null && !previous.equals(stType))
+			{
+				exit("ExportNamePreview: '" + stIdentifier.trim() + "' cannot be both a " + previous + " and a " + stType + " field.");
+			}
+		}
+	}
+
+	private static boolean isBlank(String value)
+	{
+		return value == null || value.trim().equals("");
+	}
+
+	private static void exit(String stMessage)
+	{
+		System.err.println(stMessage);
+		System.exit(1);
+	}
+
+	void writeHeader() throws IOException
+	{
+		out.write("path,proposed-name,collisions,error\n");
+	}
+
+	/**
+	 * Streams one export file, writing a row for each of its pages within a <code>system-folder</code>; the rest are
+	 * written by {@link #finish()}.
+	 * @param in InputStream of the export XML
+	 * @throws XMLStreamException if the XML is malformed
+	 * @throws IOException if the CSV cannot be written
+	 */
+	void preview(InputStream in) throws XMLStreamException, IOException
+	{
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
+		try
+		{
+			while (reader.hasNext())
+			{
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals(ExportedPage.PAGE_ELEMENT))
+				{
+					addPage(ExportedPage.read(reader, dateFieldTypes));
+				}
+				else if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals(FOLDER_ELEMENT))
+				{
+					openFolders.addLast(new FolderRows());
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(FOLDER_ELEMENT))
+				{
+					openFolders.removeLast().write(out);
+				}
+			}
+			// unbalanced folders can only remain if the document is truncated
+			while (!openFolders.isEmpty())
+			{
+				openFolders.removeLast().write(out);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Writes a row for each page outside of any <code>system-folder</code>, once every export file has been read.
+	 * @throws IOException if the CSV cannot be written
+	 */
+	void finish() throws IOException
+	{
+		for (FolderRows rows : looseFolders.values())
+		{
+			rows.write(out);
+		}
+		looseFolders.clear();
+	}
+
+	private void addPage(ExportedPage page)
+	{
+		DynamicMetadataField[] dynamicMetadata = generator.usesDynamicMetadata() ? page.getDynamicFields() : null;
+		StructuredDataNode[] structuredData = generator.usesStructuredData() ? page.getStructuredData() : null;
+		SystemNameResult result = generator.generate(page.getMetadata(), dynamicMetadata, structuredData);
+
+		FolderRows rows;
+		if (!openFolders.isEmpty())
+		{
+			rows = openFolders.getLast();
+		}
+		else
+		{
+			rows = looseFolders.get(page.getFolderPath());
+			if (rows == null)
+			{
+				rows = new FolderRows();
+				looseFolders.put(page.getFolderPath(), rows);
+			}
+		}
+		rows.add(page.getPath(), result);
+	}
+
+	/**
+	 * The rows of the pages of one folder, written once the folder is complete.
+	 */
+	private static final class FolderRows
+	{
+		private final List<String[]> rows = new ArrayList<String[]>();
+		private final Map<String, List<String>> pathsByName = new HashMap<String, List<String>>();
+
+		void add(String stPath, SystemNameResult result)
+		{
+			rows.add(new String[] { stPath, result.getName(), result.getMessage() });
+			if (result.isSuccess())
+			{
+				List<String> paths = pathsByName.get(result.getName());
+				if (paths == null)
+				{
+					paths = new ArrayList<String>(1);
+					pathsByName.put(result.getName(), paths);
+				}
+				paths.add(stPath);
+			}
+		}
+
+		void write(Writer out) throws IOException
+		{
+			for (String[] row : rows)
+			{
+				StringBuilder collisions = new StringBuilder();
+				List<String> paths = row[1] == null ? null : pathsByName.get(row[1]);
+				if (paths != null && paths.size() > 1)
+				{
+					for (String path : paths)
+					{
+						if (!path.equals(row[0]))
+						{
+							if (collisions.length() > 0)
+							{
+								collisions.append(' ');
+							}
+							collisions.append(path);
+						}
+					}
+				}
+				writeField(out, row[0]);
+				out.write(',');
+				writeField(out, row[1]);
+				out.write(',');
+				writeField(out, collisions.toString());
+				out.write(',');
+				writeField(out, row[2]);
+				out.write('\n');
+			}
+		}
+
+		private static void writeField(Writer out, String value) throws IOException
+		{
+			if (value == null)
+			{
+				return;
+			}
+			if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+			{
+				out.write(value);
+				return;
+			}
+			out.write('"');
+			out.write(value.replace("\"", "\"\""));
+			out.write('"');
+		}
+	}
+}
@@ -0,0 +1,596 @@
+package com.hannonhill.cascade.plugin;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.hannonhill.cascade.api.asset.common.DynamicMetadataField;
+import com.hannonhill.cascade.api.asset.common.Identifier;
+import com.hannonhill.cascade.api.asset.common.Metadata;
+import com.hannonhill.cascade.api.asset.common.PathIdentifier;
+import com.hannonhill.cascade.api.asset.common.StructuredDataNode;
+import com.hannonhill.cascade.api.asset.common.TextNodeOptions;
+
+/**
+ * A page read from exported Cascade XML (the <code>system-page</code> format of index blocks & site exports), held
+ * in memory as the Cascade API objects a {@link SystemNameGenerator} reads:  Metadata, Dynamic Metadata fields &
+ * Structured Data nodes.<br/><br/>
+ *
+ * The export does not record the type of Structured Data fields, so it is inferred from the markup:  an element
+ * containing only <code>value</code> elements is a multi-valued (check-box / multi-select) field, an element
+ * containing both text & elements is a WYSIWYG field, any other element containing elements is a group, and all
+ * remaining elements are plain text fields.  Date/Time & Calendar fields look no different from plain text, so the
+ * caller names them; they are then read as Cascade holds them (milliseconds since the epoch, and
+ * <code>MM-dd-yyyy</code>), to be formatted as the plug-in formats them.
+ */
+final class ExportedPage
+{
+	/** The element a page is exported as */
+	static final String PAGE_ELEMENT = "system-page";
+	/** Type of a Date/Time Structured Data field, for {@link #read(XMLStreamReader, Map)} */
+	static final String DATETIME = "datetime";
+	/** Type of a Calendar Structured Data field, for {@link #read(XMLStreamReader, Map)} */
+	static final String CALENDAR = "calendar";
+
+	private static final String VALUE_ELEMENT = "value";
+	private static final String[] NO_VALUES = new String[0];
+
+	private String name = "";
+	private String path = "";
+	private final ExportedMetadata metadata = new ExportedMetadata();
+	private final List<DynamicMetadataField> dynamicFields = new ArrayList<DynamicMetadataField>();
+	private StructuredDataNode[] structuredData;
+
+	private ExportedPage()
+	{
+	}
+
+	/**
+	 * Reads the <code>system-page</code> element at which the reader is positioned, leaving the reader positioned at
+	 * its end tag.  Elements which do not concern naming (nested pages included) are skipped.
+	 * @param reader XMLStreamReader positioned at a <code>system-page</code> start tag
+	 * @param dateFieldTypes Map of the path of each Date/Time & Calendar Structured Data field (its group names & field
+	 * name, joined by <code>/</code>) to {@link #DATETIME} or {@link #CALENDAR}
+	 * @return the page read
+	 * @throws XMLStreamException if the XML is malformed
+	 */
+	static ExportedPage read(XMLStreamReader reader, Map<String, String> dateFieldTypes) throws XMLStreamException
+	{
+		ExportedPage page = new ExportedPage();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+		{
+			String element = reader.getLocalName();
+			if (element.equals("name"))
+			{
+				page.name = reader.getElementText().trim();
+			}
+			else if (element.equals("path"))
+			{
+				page.path = reader.getElementText().trim();
+			}
+			else if (element.equals("dynamic-metadata"))
+			{
+				page.dynamicFields.add(readDynamicField(reader));
+			}
+			else if (element.equals(StructuredDataPagePlugin.STRUCTURED_DATA_TOKEN))
+			{
+				page.structuredData = readNode(reader, element, null, dateFieldTypes).getGroup();
+			}
+			else if (!page.metadata.read(element, reader))
+			{
+				skip(reader);
+			}
+		}
+		return page;
+	}
+
+	private static DynamicMetadataField readDynamicField(XMLStreamReader reader) throws XMLStreamException
+	{
+		String stName = "";
+		List<String> values = new ArrayList<String>(2);
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+		{
+			if (reader.getLocalName().equals("name"))
+			{
+				stName = reader.getElementText().trim();
+			}
+			else if (reader.getLocalName().equals(VALUE_ELEMENT))
+			{
+				values.add(reader.getElementText());
+			}
+			else
+			{
+				skip(reader);
+			}
+		}
+		return new ExportedDynamicField(stName, values.toArray(new String[values.size()]));
+	}
+
+	/**
+	 * Reads a Structured Data element, inferring its type from its content unless it is a named date field.
+	 * @param stPath String path of the element below the Structured Data root, or null for the root itself
+	 */
+	private static ExportedNode readNode(XMLStreamReader reader, String stIdentifier, String stPath, Map<String, String> dateFieldTypes) throws XMLStreamException
+	{
+		StringBuilder text = new StringBuilder();
+		List<ExportedNode> children = null;
+		List<String> values = null;
+		boolean markup = false;
+		int event;
+		while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT)
+		{
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE
+				|| event == XMLStreamConstants.ENTITY_REFERENCE)
+			{
+				text.append(reader.getText());
+			}
+			else if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				String element = reader.getLocalName();
+				if (markup)
+				{
+					skip(reader);
+				}
+				else if (element.equals(VALUE_ELEMENT) && children == null)
+				{
+					if (values == null)
+					{
+						values = new ArrayList<String>(4);
+					}
+					values.add(reader.getElementText());
+				}
+				else
+				{
+					if (children == null)
+					{
+						children = new ArrayList<ExportedNode>();
+					}
+					// a group's values become plain text children
+					if (values != null)
+					{
+						for (String value : values)
+						{
+							children.add(new ExportedNode(VALUE_ELEMENT, ExportedNode.PLAIN_TEXT, new String[] { value }, null));
+						}
+						values = null;
+					}
+					children.add(readNode(reader, element, stPath == null ? element : stPath + "/" + element, dateFieldTypes));
+				}
+			}
+			markup |= (children != null || values != null) && text.toString().trim().length() > 0;
+		}
+
+		if (markup)
+		{
+			return new ExportedNode(stIdentifier, ExportedNode.WYSIWYG, new String[] { text.toString() }, null);
+		}
+		if (children != null)
+		{
+			return new ExportedNode(stIdentifier, null, null, children.toArray(new StructuredDataNode[children.size()]));
+		}
+		if (values != null)
+		{
+			return new ExportedNode(stIdentifier, ExportedNode.MULTI_VALUED, values.toArray(new String[values.size()]), null);
+		}
+		String dateFieldType = stPath == null ? null : dateFieldTypes.get(stPath);
+		if (dateFieldType != null)
+		{
+			return new ExportedNode(stIdentifier, dateFieldType, new String[] { text.toString().trim() }, null);
+		}
+		return new ExportedNode(stIdentifier, ExportedNode.PLAIN_TEXT, new String[] { text.toString() }, null);
+	}
+
+	/**
+	 * Skips the element at whose start tag the reader is positioned, leaving the reader positioned at its end tag.
+	 */
+	static void skip(XMLStreamReader reader) throws XMLStreamException
+	{
+		int depth = 1;
+		while (depth > 0)
+		{
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * @return the page's current system name
+	 */
+	String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return the page's path within its site
+	 */
+	String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * @return the path of the page's folder, derived from its path
+	 */
+	String getFolderPath()
+	{
+		int slash = path.lastIndexOf('/');
+		return slash < 0 ? "" : path.substring(0, slash);
+	}
+
+	Metadata getMetadata()
+	{
+		return metadata;
+	}
+
+	DynamicMetadataField[] getDynamicFields()
+	{
+		return metadata.getDynamicFields();
+	}
+
+	/**
+	 * @return the page's top-level Structured Data nodes, or null if the page has no Structured Data
+	 */
+	StructuredDataNode[] getStructuredData()
+	{
+		return structuredData;
+	}
+
+	/**
+	 * Wired metadata read from the page element.  Only the getters are used.
+	 */
+	private final class ExportedMetadata implements Metadata
+	{
+		private String author = "";
+		private String displayName = "";
+		private String keywords = "";
+		private String description = "";
+		private String summary = "";
+		private String teaser = "";
+		private String title = "";
+		private Date startDate;
+		private Date endDate;
+		private Date reviewDate;
+
+		/**
+		 * @return false if the element is not a wired metadata element, in which case it has not been read
+		 */
+		boolean read(String element, XMLStreamReader reader) throws XMLStreamException
+		{
+			if (element.equals(StructuredDataPagePlugin.METADATA_TITLE))
+			{
+				title = reader.getElementText();
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_DISPLAY_NAME))
+			{
+				displayName = reader.getElementText();
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_DESCRIPTION))
+			{
+				description = reader.getElementText();
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_AUTHOR))
+			{
+				author = reader.getElementText();
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_KEYWORDS))
+			{
+				keywords = reader.getElementText();
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_SUMMARY))
+			{
+				summary = reader.getElementText();
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_TEASER))
+			{
+				teaser = reader.getElementText();
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_START_DATE))
+			{
+				startDate = readDate(reader);
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_END_DATE))
+			{
+				endDate = readDate(reader);
+			}
+			else if (element.equals(StructuredDataPagePlugin.METADATA_REVIEW_DATE))
+			{
+				reviewDate = readDate(reader);
+			}
+			else
+			{
+				return false;
+			}
+			return true;
+		}
+
+		private Date readDate(XMLStreamReader reader) throws XMLStreamException
+		{
+			// dates are exported in milliseconds since the epoch
+			long millis = DateFormatter.parseMillis(reader.getElementText().trim());
+			return millis == DateFormatter.INVALID_MILLIS ? null : new Date(millis);
+		}
+
+		public String getAuthor()
+		{
+			return author;
+		}
+
+		public void setAuthor(String author)
+		{
+			this.author = author;
+		}
+
+		public String getDisplayName()
+		{
+			return displayName;
+		}
+
+		public void setDisplayName(String displayName)
+		{
+			this.displayName = displayName;
+		}
+
+		public String getKeywords()
+		{
+			return keywords;
+		}
+
+		public void setKeywords(String keywords)
+		{
+			this.keywords = keywords;
+		}
+
+		public String getDescription()
+		{
+			return description;
+		}
+
+		public void setDescription(String description)
+		{
+			this.description = description;
+		}
+
+		public String getSummary()
+		{
+			return summary;
+		}
+
+		public void setSummary(String summary)
+		{
+			this.summary = summary;
+		}
+
+		public String getTeaser()
+		{
+			return teaser;
+		}
+
+		public void setTeaser(String teaser)
+		{
+			this.teaser = teaser;
+		}
+
+		public String getTitle()
+		{
+			return title;
+		}
+
+		public void setTitle(String title)
+		{
+			this.title = title;
+		}
+
+		public Date getEndDate()
+		{
+			return endDate;
+		}
+
+		public void setEndDate(Date endDate)
+		{
+			this.endDate = endDate;
+		}
+
+		public Date getReviewDate()
+		{
+			return reviewDate;
+		}
+
+		public void setReviewDate(Date reviewDate)
+		{
+			this.reviewDate = reviewDate;
+		}
+
+		public Date getStartDate()
+		{
+			return startDate;
+		}
+
+		public void setStartDate(Date startDate)
+		{
+			this.startDate = startDate;
+		}
+
+		public DynamicMetadataField[] getDynamicFields()
+		{
+			return dynamicFields.toArray(new DynamicMetadataField[dynamicFields.size()]);
+		}
+	}
+
+	/**
+	 * A Dynamic Metadata field read from a <code>dynamic-metadata</code> element.
+	 */
+	private static final class ExportedDynamicField implements DynamicMetadataField
+	{
+		private String name;
+		private final String[] values;
+
+		ExportedDynamicField(String name, String[] values)
+		{
+			this.name = name;
+			this.values = values;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public void setName(String name)
+		{
+			this.name = name;
+		}
+
+		public Identifier getIdentifer()
+		{
+			return null;
+		}
+
+		public String getLabel()
+		{
+			return name;
+		}
+
+		public String[] getValues()
+		{
+			return values;
+		}
+
+		public boolean isCheckbox()
+		{
+			return false;
+		}
+
+		public boolean isDropdown()
+		{
+			return false;
+		}
+
+		public boolean isRadio()
+		{
+			return false;
+		}
+
+		public boolean isMultiple()
+		{
+			return values.length > 1;
+		}
+	}
+
+	/**
+	 * A Structured Data group or text field read from a <code>system-data-structure</code> element, which is also
+	 * its own TextNodeOptions.
+	 */
+	private static final class ExportedNode implements StructuredDataNode, TextNodeOptions
+	{
+		static final String PLAIN_TEXT = "plain-text";
+		static final String MULTI_VALUED = "multi-valued";
+		static final String WYSIWYG = "wysiwyg";
+
+		private final String identifier;
+		/** One of the text types above, or null for a group */
+		private final String textType;
+		private final String[] textValues;
+		private final StructuredDataNode[] group;
+
+		ExportedNode(String identifier, String textType, String[] textValues, StructuredDataNode[] group)
+		{
+			this.identifier = identifier;
+			this.textType = textType;
+			this.textValues = textValues == null ? NO_VALUES : textValues;
+			this.group = group;
+		}
+
+		public String getIdentifier()
+		{
+			return identifier;
+		}
+
+		public boolean isGroup()
+		{
+			return textType == null;
+		}
+
+		public boolean isText()
+		{
+			return textType != null;
+		}
+
+		public TextNodeOptions getTextNodeOptions()
+		{
+			return textType == null ? null : this;
+		}
+
+		public boolean isAsset()
+		{
+			return false;
+		}
+
+		public StructuredDataNode[] getGroup()
+		{
+			return group;
+		}
+
+		public String[] getTextValues()
+		{
+			return textValues;
+		}
+
+		public PathIdentifier getAssetIdentifier()
+		{
+			return null;
+		}
+
+		public boolean isPlainText()
+		{
+			return textType == PLAIN_TEXT;
+		}
+
+		public boolean isCheckbox()
+		{
+			return false;
+		}
+
+		public boolean isRadio()
+		{
+			return false;
+		}
+
+		public boolean isCalendar()
+		{
+			return textType == CALENDAR;
+		}
+
+		public boolean isDatetime()
+		{
+			return textType == DATETIME;
+		}
+
+		public boolean isDropdown()
+		{
+			return false;
+		}
+
+		public boolean isMultiselect()
+		{
+			return textType == MULTI_VALUED;
+		}
+
+		public boolean isWysiwyg()
+		{
+			return textType == WYSIWYG;
+		}
+	}
+}
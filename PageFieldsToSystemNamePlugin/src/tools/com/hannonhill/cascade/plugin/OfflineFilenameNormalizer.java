@@ -0,0 +1,40 @@
+package com.hannonhill.cascade.plugin;
+
+import java.text.Normalizer;
+import java.util.List;
+
+import com.hannonhill.cascade.api.util.FilenameNormalizer;
+
+/**
+ * Stand-in for Cascade's FilenameNormalizer, for naming pages outside of a running Cascade instance (by
+ * {@link ExportNamePreview}, and by the benchmarks & checks):  accents are removed by Unicode decomposition, and
+ * anything other than letters, digits, space, dash, underscore & period is dropped (or replaced, when a replacement
+ * character is given).
+ */
+public final class OfflineFilenameNormalizer implements FilenameNormalizer
+{
+	public String normalize(String name, List<Character> additionalAllowedChars)
+	{
+		return normalize(name, null, additionalAllowedChars);
+	}
+
+	public String normalize(String name, Character character, List<Character> additionalAllowedChars)
+	{
+		String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+		StringBuilder normalized = new StringBuilder(decomposed.length());
+		for (int i = 0; i < decomposed.length(); i++)
+		{
+			char c = decomposed.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == ' ' || c == '-' || c == '_' || c == '.'
+				|| (additionalAllowedChars != null && additionalAllowedChars.contains(Character.valueOf(c))))
+			{
+				normalized.append(c);
+			}
+			else if (character != null && Character.getType(c) != Character.NON_SPACING_MARK)
+			{
+				normalized.append(character.charValue());
+			}
+		}
+		return normalized.toString();
+	}
+}